@@ -0,0 +1,340 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm;
+
+import lombok.ToString;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.sonatype.plexus.build.incremental.BuildContext;
+import zone.gryphon.maven.plugins.scm.util.MetadataFiles;
+import zone.gryphon.maven.plugins.scm.util.Util;
+
+import javax.lang.model.SourceVersion;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.apache.maven.plugins.annotations.LifecyclePhase.GENERATE_SOURCES;
+
+/**
+ * Generates a Java class containing the properties set by the <code>metadata</code> goal as <code>String</code>
+ * constants, and adds it as a compile source root, so that the SCM metadata is available to the application at runtime
+ * without reading a resource.
+ * <br><br>
+ * Each property whose name starts with <code>prefix</code> becomes a constant named after the rest of the property
+ * name, e.g. <code>scm.metadata.revision.short</code> becomes <code>REVISION_SHORT</code>.
+ * The <code>metadata</code> goal must run before this goal, which it does by default.
+ * <br><br>
+ * The source only depends on the values of the constants, and is only written if it would change, so incremental
+ * compilers (and IDEs) only recompile the module when a value actually changes. Properties which change on every build
+ * in a dirty working tree, such as <code>worktree.fingerprint</code>, can be left out using <code>excludes</code>.
+ *
+ * @since 1.9
+ */
+@Mojo(
+    name = "build-info",
+    defaultPhase = GENERATE_SOURCES,
+    threadSafe = true
+)
+@ToString(callSuper = true)
+public class BuildInfoMojo extends AbstractMojo {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Maven project
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "${project}", required = true, readonly = true)
+    private MavenProject project;
+
+    /**
+     * If true, plugin execution will be skipped
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "false")
+    private boolean skip;
+
+    /**
+     * The package of the generated class
+     *
+     * @since 1.9
+     */
+    @Parameter(required = true)
+    private String packageName;
+
+    /**
+     * The simple name of the generated class
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "BuildInfo")
+    private String className;
+
+    /**
+     * The directory the source is generated in, which is added as a compile source root
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/scm-metadata")
+    private File outputDirectory;
+
+    /**
+     * The prefix the <code>metadata</code> goal is configured with.
+     * Only properties starting with the prefix are included, and the prefix isn't part of the constant names.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "scm.metadata.")
+    private String prefix;
+
+    /**
+     * Comma separated list of properties to leave out of the generated class, without the prefix, e.g.
+     * <code>dirty,worktree.fingerprint</code>.
+     * A trailing <code>*</code> matches any property starting with the preceding text,
+     * e.g. <code>remote.path.segment*</code>.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private String excludes;
+
+    /**
+     * Incremental build support, which is provided by IDEs such as Eclipse (m2e)
+     */
+    @Component
+    private BuildContext buildContext;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+
+        if (skip) {
+            getLog().debug(String.format("skip set to \"%s\", not generating build info", skip));
+            return;
+        }
+
+        try {
+            executeInternal();
+        } catch (MojoFailureException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new MojoExecutionException("Unexpected failure during plugin execution", t);
+        }
+    }
+
+    private void executeInternal() throws Exception {
+        Objects.requireNonNull(project, "Maven project cannot be null");
+
+        if (Util.isBlank(packageName) || !SourceVersion.isName(packageName.trim())) {
+            throw new MojoFailureException(String.format("Value for \"%s\" is invalid: \"%s\" is not a valid package name", "packageName", packageName));
+        }
+
+        if (Util.isBlank(className) || !SourceVersion.isIdentifier(className.trim()) || SourceVersion.isKeyword(className.trim())) {
+            throw new MojoFailureException(String.format("Value for \"%s\" is invalid: \"%s\" is not a valid class name", "className", className));
+        }
+
+        Map<String, String> constants = constants();
+
+        if (constants.isEmpty()) {
+            getLog().warn(String.format("No properties starting with \"%s\" are set, make sure the metadata goal runs before this goal", Util.firstNonNull(prefix, "")));
+        }
+
+        String pkg = packageName.trim();
+        String name = className.trim();
+
+        File file = new File(new File(outputDirectory, pkg.replace('.', File.separatorChar)), name + ".java");
+
+        if (MetadataFiles.writeIfChanged(file, render(pkg, name, constants).getBytes(UTF_8))) {
+            getLog().info(String.format("Generated %s.%s", pkg, name));
+
+            if (buildContext != null) {
+                buildContext.refresh(file);
+            }
+        } else {
+            getLog().debug(String.format("%s is up to date", file));
+        }
+
+        project.addCompileSourceRoot(outputDirectory.getAbsolutePath());
+    }
+
+    /**
+     * @return The value of each constant, keyed by the name of the constant
+     */
+    private Map<String, String> constants() throws MojoFailureException {
+        String effectivePrefix = Util.firstNonNull(prefix, "");
+        List<String> excluded = parseExcludes();
+
+        Map<String, String> out = new TreeMap<>();
+
+        for (String key : new TreeSet<>(project.getProperties().stringPropertyNames())) {
+            if (!key.startsWith(effectivePrefix)) {
+                continue;
+            }
+
+            String property = key.substring(effectivePrefix.length());
+
+            if (property.isEmpty() || isExcluded(property, excluded)) {
+                continue;
+            }
+
+            String constant = constantName(property);
+            String value = project.getProperties().getProperty(key);
+            String existing = out.get(constant);
+
+            // e.g. the PROPERTY and ARRAY notations of remote path segments, which have the same value
+            if (existing != null && !existing.equals(value)) {
+                throw new MojoFailureException(String.format("More than one property maps to the constant %s, exclude all but one of them", constant));
+            }
+
+            out.put(constant, value);
+        }
+
+        return out;
+    }
+
+    private List<String> parseExcludes() {
+        List<String> out = new ArrayList<>();
+
+        if (Util.isBlank(excludes)) {
+            return out;
+        }
+
+        for (String exclude : excludes.split(",")) {
+            if (Util.isNonBlank(exclude)) {
+                out.add(exclude.trim());
+            }
+        }
+
+        return out;
+    }
+
+    private static boolean isExcluded(String property, List<String> excluded) {
+        for (String exclude : excluded) {
+            if (exclude.endsWith("*") ? property.startsWith(exclude.substring(0, exclude.length() - 1)) : property.equals(exclude)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Convert a property name to a constant name, e.g. {@code remote.path.segment[-1]} to
+     * {@code REMOTE_PATH_SEGMENT_MINUS_1}
+     */
+    static String constantName(String property) {
+        StringBuilder out = new StringBuilder();
+        boolean separator = false;
+
+        for (int i = 0; i < property.length(); i++) {
+            char c = property.charAt(i);
+
+            if (c == '-') {
+                if (out.length() > 0) {
+                    out.append('_');
+                }
+                out.append("MINUS");
+                separator = true;
+            } else if (c < 0x80 && Character.isLetterOrDigit(c)) {
+                if (separator && out.length() > 0) {
+                    out.append('_');
+                }
+                out.append(Character.toUpperCase(c));
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+
+        if (out.length() == 0 || Character.isDigit(out.charAt(0))) {
+            out.insert(0, '_');
+        }
+
+        return out.toString();
+    }
+
+    static String render(String packageName, String className, Map<String, String> constants) {
+        StringBuilder out = new StringBuilder();
+
+        out.append("package ").append(packageName).append(";\n\n");
+        out.append("/**\n");
+        out.append(" * SCM metadata of the build, generated by scm-metadata-maven-plugin\n");
+        out.append(" */\n");
+        out.append("public final class ").append(className).append(" {\n");
+
+        for (Map.Entry<String, String> constant : constants.entrySet()) {
+            out.append("\n    public static final String ").append(constant.getKey()).append(" = ");
+            appendStringLiteral(out, constant.getValue());
+            out.append(";\n");
+        }
+
+        out.append("\n    private ").append(className).append("() {\n");
+        out.append("    }\n\n");
+        out.append("}\n");
+
+        return out.toString();
+    }
+
+    private static void appendStringLiteral(StringBuilder out, String value) {
+        out.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        // unicode escapes of line terminators are processed before the literal is parsed
+                        out.append(String.format("\\%03o", (int) c));
+                    } else if (c > 0x7e) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+
+        out.append('"');
+    }
+
+}
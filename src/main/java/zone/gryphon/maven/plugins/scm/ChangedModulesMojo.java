@@ -0,0 +1,279 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm;
+
+import lombok.ToString;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import zone.gryphon.maven.plugins.scm.git.ChangedPaths;
+import zone.gryphon.maven.plugins.scm.git.GitOptions;
+import zone.gryphon.maven.plugins.scm.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.apache.maven.plugins.annotations.LifecyclePhase.INITIALIZE;
+
+/**
+ * Determines which modules in the reactor contain changes since a base revision (for example the branch a pull request
+ * targets), so that incremental builds only need to build the modules which changed.
+ * <br><br>
+ * The changed files are found using a single diff between the base revision and the index and working tree
+ * (or <code>HEAD</code>, see <code>includeWorkingTree</code>).
+ * Each changed file is attributed to the module whose directory most closely contains it.
+ *
+ * <h3>Properties Set:</h3>
+ * <ul>
+ * <li><code>module.changed</code> - set on every module in the reactor,
+ * <code>true</code> if the module contains changes, <code>false</code> otherwise</li>
+ * <li><code>module.unchanged</code> - the inverse of <code>module.changed</code>, which is convenient for plugins'
+ * <code>skip</code> configuration</li>
+ * <li><code>changed.modules</code> - a comma separated list of the changed modules in the
+ * <code>groupId:artifactId</code> format accepted by <code>--projects</code>/<code>-pl</code></li>
+ * </ul>
+ * Note that the name of each property is prefixed with the value of the <code>prefix</code> configuration option.
+ * <br><br>
+ * Modules which depend on a changed module aren't considered changed. When building the list of changed modules
+ * with <code>-pl</code>, add <code>--also-make-dependents</code>/<code>-amd</code> to build them as well.
+ *
+ * @since 1.9
+ */
+@Mojo(
+    name = "changed-modules",
+    defaultPhase = INITIALIZE,
+    aggregator = true
+)
+@ToString(callSuper = true)
+public class ChangedModulesMojo extends AbstractMojo {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Maven session
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "${session}", required = true, readonly = true)
+    private MavenSession session;
+
+    /**
+     * If true, plugin execution will be skipped
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "false")
+    private boolean skip;
+
+    /**
+     * The revision to compare with, for example <code>origin/master</code>.
+     * Any revision understood by <code>git rev-parse</code> can be used.
+     *
+     * @since 1.9
+     */
+    @Parameter(property = "baseRef", required = true)
+    private String baseRef;
+
+    /**
+     * If true, compare with the merge base of <code>baseRef</code> and <code>HEAD</code> (the point at which the
+     * current branch diverged from <code>baseRef</code>) instead of <code>baseRef</code> itself,
+     * so that changes made on <code>baseRef</code> since then aren't included.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "true")
+    private boolean mergeBase;
+
+    /**
+     * If true, uncommitted and untracked changes are included, in addition to changes committed since the base
+     * revision.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "true")
+    private boolean includeWorkingTree;
+
+    /**
+     * If set, the comma separated list of changed modules (the same value as the <code>changed.modules</code>
+     * property) is written to this file, for use as the value of <code>-pl</code> in a subsequent build.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private File outputFile;
+
+    /**
+     * Prefix to apply to all property names.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "scm.metadata.")
+    private String prefix;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+
+        if (skip) {
+            getLog().debug(String.format("skip set to \"%s\", not calculating changed modules", skip));
+            return;
+        }
+
+        try {
+            executeInternal();
+        } catch (MojoFailureException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException(e.getMessage(), e);
+        } catch (Throwable t) {
+            throw new MojoExecutionException("Unexpected failure during plugin execution", t);
+        }
+    }
+
+    private void executeInternal() throws Exception {
+        Objects.requireNonNull(session, "Maven session cannot be null");
+
+        List<MavenProject> projects = session.getProjects();
+
+        if (Util.isBlank(baseRef)) {
+            throw new MojoFailureException(String.format("\"%s\" must be set", "baseRef"));
+        }
+
+        ChangedPaths changes = ChangedPaths.find(
+            session.getTopLevelProject().getBasedir(),
+            baseRef.trim(),
+            mergeBase,
+            includeWorkingTree,
+            GitOptions.DEFAULTS,
+            getLog());
+
+        Set<MavenProject> changed = attribute(changes, projects);
+
+        List<String> selectors = new ArrayList<>();
+
+        for (MavenProject project : projects) {
+            boolean isChanged = changed.contains(project);
+
+            project.getProperties().setProperty(propertyName("module.changed"), Boolean.toString(isChanged));
+            project.getProperties().setProperty(propertyName("module.unchanged"), Boolean.toString(!isChanged));
+
+            if (isChanged) {
+                selectors.add(String.format("%s:%s", project.getGroupId(), project.getArtifactId()));
+            }
+        }
+
+        String list = join(selectors);
+
+        getLog().info(String.format("%d of %d module%s changed since %s", selectors.size(), projects.size(), projects.size() == 1 ? "" : "s", changes.getBase()));
+        getLog().debug(String.format("Changed modules: %s", list));
+
+        session.getUserProperties().setProperty(propertyName("changed.modules"), list);
+
+        for (MavenProject project : projects) {
+            project.getProperties().setProperty(propertyName("changed.modules"), list);
+        }
+
+        if (outputFile != null) {
+            write(outputFile, list);
+        }
+    }
+
+    /**
+     * Attribute each changed path to the module whose directory most closely contains it
+     */
+    private Set<MavenProject> attribute(ChangedPaths changes, List<MavenProject> projects) throws IOException {
+        Map<String, MavenProject> byPath = new HashMap<>();
+
+        for (MavenProject project : projects) {
+            String path = changes.relativePath(project.getBasedir());
+
+            if (path == null) {
+                getLog().debug(String.format("%s is outside of the working tree", project.getBasedir()));
+                continue;
+            }
+
+            byPath.put(path, project);
+        }
+
+        Set<MavenProject> out = new LinkedHashSet<>();
+
+        for (String changed : changes.getPaths()) {
+            // untracked directories end with a slash
+            String path = changed.endsWith("/") ? changed.substring(0, changed.length() - 1) : changed;
+
+            while (true) {
+                MavenProject project = byPath.get(path);
+
+                if (project != null) {
+                    out.add(project);
+                    break;
+                }
+
+                if (path.isEmpty()) {
+                    getLog().debug(String.format("%s isn't in any module", changed));
+                    break;
+                }
+
+                int slash = path.lastIndexOf('/');
+                path = slash < 0 ? "" : path.substring(0, slash);
+            }
+        }
+
+        return out;
+    }
+
+    private String propertyName(String key) {
+        return Util.isNonBlank(prefix) ? String.format("%s%s", prefix, key) : key;
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder out = new StringBuilder();
+
+        for (String value : values) {
+            if (out.length() > 0) {
+                out.append(',');
+            }
+
+            out.append(value);
+        }
+
+        return out.toString();
+    }
+
+    private void write(File file, String content) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+        getLog().debug(String.format("Wrote changed modules to %s", file));
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import zone.gryphon.maven.plugins.scm.git.RepositoryPool;
+
+/**
+ * Closes the repositories pooled during a session when the session ends.
+ * <br><br>
+ * Maven only calls lifecycle participants of plugins which are loaded as build extensions
+ * (<code>&lt;extensions&gt;true&lt;/extensions&gt;</code>). Otherwise, the repositories are closed once the
+ * {@code metadata} goal has run for every project in the reactor.
+ */
+public class RepositoryPoolLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+
+    @Override
+    public void afterSessionEnd(MavenSession session) {
+        RepositoryPool.end(session);
+    }
+
+}
@@ -20,28 +20,52 @@ import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
+import org.sonatype.plexus.build.incremental.BuildContext;
+import zone.gryphon.maven.plugins.scm.git.CheckoutFingerprint;
+import zone.gryphon.maven.plugins.scm.git.GitBackend;
+import zone.gryphon.maven.plugins.scm.git.GitCliScmMetadataProvider;
+import zone.gryphon.maven.plugins.scm.git.GitEnvironmentScmMetadataProvider;
+import zone.gryphon.maven.plugins.scm.git.GitOptions;
 import zone.gryphon.maven.plugins.scm.git.GitScmMetadataProvider;
+import zone.gryphon.maven.plugins.scm.git.RepositoryPool;
+import zone.gryphon.maven.plugins.scm.git.RepositoryState;
+import zone.gryphon.maven.plugins.scm.git.ResidentMetadataCache;
+import zone.gryphon.maven.plugins.scm.git.WindowCacheSettings;
+import zone.gryphon.maven.plugins.scm.model.AdditionalProperty;
+import zone.gryphon.maven.plugins.scm.model.CommitInfo;
+import zone.gryphon.maven.plugins.scm.model.OutputFormat;
 import zone.gryphon.maven.plugins.scm.model.PathPropertiesNotation;
 import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
 import zone.gryphon.maven.plugins.scm.model.ScmUrl;
 import zone.gryphon.maven.plugins.scm.provider.ScmMetadataProvider;
 import zone.gryphon.maven.plugins.scm.util.LexicographicMapEntryComparator;
+import zone.gryphon.maven.plugins.scm.util.MetadataExport;
+import zone.gryphon.maven.plugins.scm.util.MetadataFiles;
 import zone.gryphon.maven.plugins.scm.util.Util;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import static org.apache.maven.plugins.annotations.LifecyclePhase.INITIALIZE;
 import static zone.gryphon.maven.plugins.scm.util.KnownScms.AUTO;
+import static zone.gryphon.maven.plugins.scm.util.KnownScms.GIT;
 import static zone.gryphon.maven.plugins.scm.util.KnownScms.NONE;
 
 /**
@@ -52,10 +76,11 @@ import static zone.gryphon.maven.plugins.scm.util.KnownScms.NONE;
  * <h3>Metadata Calculated:</h3>
  * <ul>
  * <li><code>revision</code> - the current project revision (e.g. git commit SHA)</li>
- * <li><code>revision.short</code> - a potentially truncated version of the <code>revision</code> property</li>
- * <li><code>branch</code> - the current SCM branch (e.g. <code>master</code>)</li>
+ * <li><code>revision.short</code> - a potentially truncated (or uniquely abbreviated) version of the <code>revision</code> property</li>
+ * <li><code>branch</code> - the current SCM branch (e.g. <code>master</code>), see <code>recoverDetachedBranch</code> for builds of a detached <code>HEAD</code></li>
  * <li><code>dirty</code> - <code>true</code> if there are any uncommitted local changes in files which are not excluded from SCM, <code>false</code> otherwise (equivalent to checking <code>git status --porcelain</code>)</li>
  * </ul>
+ * Optional metadata can be enabled using the <code>additionalProperties</code> configuration option.
  *
  * <h3>Remote Path Segment Properties</h3>
  * Additionally, properties prefixed with <code>remote.path.segment</code> will be injected for each path segment in the
@@ -94,6 +119,10 @@ import static zone.gryphon.maven.plugins.scm.util.KnownScms.NONE;
 @ToString(callSuper = true)
 public class ScmMetadataMavenPluginMojo extends AbstractMojo {
 
+    private static final String OUTPUT_TIMESTAMP_PROPERTY = "project.build.outputTimestamp";
+
+    private static final String CACHED_METADATA_KEY = ScmMetadataMavenPluginMojo.class.getName() + ".metadata";
+
     /**
      * Maven project
      *
@@ -156,6 +185,21 @@ public class ScmMetadataMavenPluginMojo extends AbstractMojo {
     @Parameter(defaultValue = "8")
     private int shortRevisionLength;
 
+    /**
+     * If true, <code>revision.short</code> is the shortest prefix of the revision which is at least
+     * <code>shortRevisionLength</code> characters long and doesn't match any other object in the repository,
+     * in the same way as <code>git rev-parse --short</code>.
+     * Otherwise, the revision is simply truncated to <code>shortRevisionLength</code> characters,
+     * which can be ambiguous in repositories with many objects.
+     * <br><br>
+     * Uniqueness is checked by binary searching the index of each pack file, and listing the loose object directory
+     * matching the first two characters of the revision, so the cost doesn't grow with the size of the repository.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "false")
+    private boolean uniqueShortRevision;
+
     /**
      * A map of <code>String</code> to <code>String</code> which allows for properties to be renamed before they're set.
      * Each key is the name of a property (after the <code>prefix</code> is applied), and the value is what the property
@@ -224,6 +268,404 @@ public class ScmMetadataMavenPluginMojo extends AbstractMojo {
     @Parameter(defaultValue = "ARRAY")
     private String remotePathNotation;
 
+    /**
+     * If true, the object ids calculated for files whose size or modification time differs from the index
+     * (for example because they were touched, or re-written by a checkout) are persisted in a cache in the
+     * <code>git</code> directory, keyed by the path, size, modification time and inode of each file.
+     * Subsequent builds can then determine that such files are unchanged without reading their contents.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "false")
+    private boolean contentHashCache;
+
+    /**
+     * If true, files which have a clean filter (for example <code>git-lfs</code>) or line ending conversion
+     * (for example <code>core.autocrlf</code>) configured are compared to the index using only their size and
+     * modification time, instead of running the filter and hashing the result.
+     * This avoids starting a filter process for every such file whose modification time changed,
+     * at the cost of reporting files which were touched but not modified as <code>dirty</code>.
+     * <br><br>
+     * If <code>contentHashCache</code> is also enabled, filtered files are instead hashed the first time their
+     * modification time changes, and the cached result is used by subsequent builds,
+     * so the filter runs at most once per change rather than on every build.
+     * <br><br>
+     * Only applies to the <code>JGIT</code> backend.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "false")
+    private boolean statOnlyFilteredFiles;
+
+    /**
+     * The implementation used to read metadata from <code>git</code> repositories. Valid options:
+     * <dl>
+     * <dt><code>JGIT</code></dt>
+     * <dd>Read the repository in-process using <a href="https://www.eclipse.org/jgit/">JGit</a></dd>
+     * <dt><code>CLI</code></dt>
+     * <dd>
+     * Run the locally installed <code>git</code> executable (see <code>gitExecutable</code>) and parse the output of
+     * <code>git status --porcelain=v2</code>.
+     * Recent versions of <code>git</code> can be considerably faster than JGit on large repositories,
+     * since they can make use of the untracked cache, fsmonitor, split index and multi-threaded index preloading.
+     * If the executable isn't installed or fails, <code>JGIT</code> is used instead.
+     * </dd>
+     * <dt><code>ENVIRONMENT</code></dt>
+     * <dd>
+     * Read the revision and branch from the environment variables set by CI servers
+     * (see <code>environmentRevisionVariables</code> and <code>environmentBranchVariables</code>), which is also the
+     * only way to determine the branch when the CI server checks out a detached <code>HEAD</code>.
+     * The repository is only opened to calculate the status of the working tree (see
+     * <code>environmentAssumeClean</code>) and any <code>additionalProperties</code>.
+     * If the revision isn't set, or doesn't match <code>HEAD</code>, <code>JGIT</code> is used instead.
+     * </dd>
+     * </dl>
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "JGIT")
+    private String gitBackend;
+
+    /**
+     * The <code>git</code> executable to run when <code>gitBackend</code> is <code>CLI</code>.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "git")
+    private String gitExecutable;
+
+    /**
+     * Comma separated list of the environment variables the revision is read from by the <code>ENVIRONMENT</code>
+     * <code>gitBackend</code>, in order of precedence.
+     * Defaults to the variables set by Jenkins, GitLab and GitHub Actions:
+     * <code>GIT_COMMIT,CI_COMMIT_SHA,GITHUB_SHA</code>
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private String environmentRevisionVariables;
+
+    /**
+     * Comma separated list of the environment variables the branch is read from by the <code>ENVIRONMENT</code>
+     * <code>gitBackend</code>, in order of precedence.
+     * Values which are refs other than branches (such as <code>refs/tags/v1.0</code> or
+     * <code>refs/pull/1/merge</code>) are skipped, and the <code>refs/heads/</code> and <code>origin/</code>
+     * prefixes are removed.
+     * Defaults to the variables set by Jenkins, GitLab and GitHub Actions:
+     * <code>GIT_LOCAL_BRANCH,GIT_BRANCH,CI_MERGE_REQUEST_SOURCE_BRANCH_NAME,CI_COMMIT_BRANCH,GITHUB_HEAD_REF,GITHUB_REF</code>
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private String environmentBranchVariables;
+
+    /**
+     * If true, the <code>ENVIRONMENT</code> <code>gitBackend</code> assumes the working tree is clean instead of
+     * calculating its status, so that the repository isn't opened at all unless <code>additionalProperties</code> are
+     * requested. Only enable this if nothing modifies the checkout before the plugin runs.
+     * <br><br>
+     * Since the revision and branch are read without JGit, JGit's classes aren't loaded at all in this case,
+     * which noticeably reduces the startup time of short builds such as <code>mvn validate</code>.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "false")
+    private boolean environmentAssumeClean;
+
+    /**
+     * A comma separated list of optional metadata to calculate, in addition to the metadata which is always set.
+     * These are disabled by default, since they require reading the history of the repository.
+     * <br><br>
+     * Valid values which can be included in the list:
+     * <dl>
+     * <dt><code>COMMIT_COUNT</code></dt>
+     * <dd>
+     * Sets <code>commit.count</code> to the number of commits reachable from the current revision
+     * (equivalent to <code>git rev-list --count HEAD</code>), which is suitable for use as an increasing build number.
+     * </dd>
+     * <dt><code>TAG_DISTANCE</code></dt>
+     * <dd>
+     * Sets <code>tag.distance</code> to the number of commits since the nearest tag reachable from the current
+     * revision (<code>0</code> if the current revision is tagged).
+     * The property isn't set if no tag is found (see <code>tagSearchDepth</code>).
+     * </dd>
+     * <dt><code>TAG</code></dt>
+     * <dd>
+     * Sets <code>tag</code> to the name of the tag pointing to the current revision.
+     * If multiple tags point to the revision, the lexicographically greatest name is used.
+     * The property isn't set if the current revision isn't tagged.
+     * </dd>
+     * <dt><code>DESCRIBE</code></dt>
+     * <dd>
+     * Sets <code>describe</code> to a description of the current revision relative to the nearest tag, in the same
+     * format as <code>git describe --tags</code>: the name of the tag if the current revision is tagged, otherwise
+     * <code>&lt;tag&gt;-&lt;tag.distance&gt;-g&lt;abbreviated revision&gt;</code>.
+     * The property isn't set if no tag is found.
+     * </dd>
+     * <dt><code>UPSTREAM</code></dt>
+     * <dd>
+     * Sets <code>upstream.ahead</code> and <code>upstream.behind</code> to the number of commits on the current
+     * branch which aren't on its upstream branch, and vice versa
+     * (equivalent to <code>git rev-list --left-right --count HEAD...@{upstream}</code>),
+     * for example so that release builds can refuse to build unpushed commits.
+     * If a count can't be determined by visiting <code>upstreamSearchDepth</code> commits, it's set to
+     * <code>&gt;N</code>, where <code>N</code> is the value of <code>upstreamSearchDepth</code>.
+     * The properties aren't set if <code>HEAD</code> is detached, or the current branch has no upstream.
+     * </dd>
+     * <dt><code>COMMIT</code></dt>
+     * <dd>
+     * Sets the following properties describing the current revision, which only requires reading the commit itself:
+     * <ul>
+     * <li><code>commit.timestamp</code> - the commit time in ISO 8601 format, in the committer's time zone
+     * (e.g. <code>2019-10-12T14:03:51+02:00</code>)</li>
+     * <li><code>commit.author.name</code> and <code>commit.author.email</code></li>
+     * <li><code>commit.committer.name</code> and <code>commit.committer.email</code></li>
+     * <li><code>commit.subject</code> - the first paragraph of the commit message, joined into a single line</li>
+     * </ul>
+     * </dd>
+     * <dt><code>MODULE_TREE</code></dt>
+     * <dd>
+     * Sets <code>module.tree</code> to a fingerprint of the content of the module's directory
+     * (see <code>directory</code>), for use as a cache key or image tag which only changes when the module does.
+     * If none of the files in the directory have uncommitted changes, this is the id of the directory's tree object
+     * in the current revision (equivalent to <code>git rev-parse HEAD:&lt;directory&gt;</code>),
+     * which is read without hashing any files.
+     * Otherwise, it's a hash of the tree id combined with the path and content of each changed file.
+     * </dd>
+     * <dt><code>WORKTREE_FINGERPRINT</code></dt>
+     * <dd>
+     * Sets <code>worktree.fingerprint</code> to a fingerprint of the state of the working tree, so that builds of
+     * identical uncommitted changes can share build cache keys (unlike <code>dirty</code>, which is the same for all
+     * of them). If there are no uncommitted changes this is the current revision, otherwise it's a hash of the
+     * revision combined with the path and content (or deletion) of each changed file, in sorted order.
+     * The changed files are found while determining <code>dirty</code>, and only they are read.
+     * </dd>
+     * </dl>
+     * <br>
+     * Tags are indexed once per build, and the index is shared by all modules in the reactor,
+     * unless the tags in the repository change.
+     * <br>
+     * If the repository has a commit-graph (written by <code>git gc</code> or <code>git commit-graph write</code>),
+     * it's used to walk history without parsing each commit.
+     * Otherwise, counts are cached in the <code>git</code> directory,
+     * so that subsequent builds only need to walk the commits added since the previous build.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private String additionalProperties;
+
+    /**
+     * The maximum number of commits to visit while searching for the nearest tag for the <code>TAG_DISTANCE</code>
+     * and <code>DESCRIBE</code> properties.
+     * This bounds the cost of the search when the current revision is far from any tag.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "10000")
+    private int tagSearchDepth;
+
+    /**
+     * The maximum number of tags to consider when searching for the nearest tag for the <code>TAG_DISTANCE</code>
+     * and <code>DESCRIBE</code> properties.
+     * The search stops once this many tags have been found, and the nearest of them is used.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "10")
+    private int tagSearchCandidates;
+
+    /**
+     * The maximum number of commits to visit while counting the commits ahead of and behind the upstream branch for
+     * the <code>UPSTREAM</code> properties.
+     * This bounds the cost of counting when the current branch has diverged a long way from its upstream.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "10000")
+    private int upstreamSearchDepth;
+
+    /**
+     * If true, and <code>HEAD</code> is detached (as it usually is in CI checkouts), <code>branch</code> is set to
+     * the name of a branch pointing to the current revision instead of the revision itself.
+     * Local branches are preferred to remote-tracking branches, whose names are used without the name of the remote
+     * (e.g. <code>refs/remotes/origin/feature</code> becomes <code>feature</code>).
+     * If several branches of the same kind point to the revision, the lexicographically least name is used.
+     * <br><br>
+     * Branches are indexed once per build, and the index is shared by all modules in the reactor,
+     * unless the branches in the repository change.
+     * If no branch is found, <code>branch</code> is set to the revision as usual.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "false")
+    private boolean recoverDetachedBranch;
+
+    /**
+     * If <code>recoverDetachedBranch</code> is enabled and no branch points to the current revision,
+     * the maximum number of commits to visit while searching history for the nearest branch which contains the
+     * current revision (similar to <code>git branch --contains</code>).
+     * The search starts from every branch at once, so this bounds its total cost regardless of the number of
+     * branches. The search is disabled if set to <code>0</code>.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "0")
+    private int detachedBranchSearchDepth;
+
+    /**
+     * If true, <code>project.build.outputTimestamp</code> is set to the commit time of the current revision
+     * (in ISO 8601 format), so that builds of the same commit produce
+     * <a href="https://maven.apache.org/guides/mini/guide-reproducible-builds.html">reproducible</a> artifacts,
+     * regardless of when they're built.
+     * If there are uncommitted changes, <code>dirtyOutputTimestamp</code> is used instead,
+     * since the artifacts no longer correspond to the commit.
+     * <br><br>
+     * Unlike the other properties, <code>project.build.outputTimestamp</code> isn't affected by
+     * <code>prefix</code> or <code>rename</code>, and any value configured in the POM is overwritten.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "false")
+    private boolean outputTimestampFromCommit;
+
+    /**
+     * The value <code>project.build.outputTimestamp</code> is set to if <code>outputTimestampFromCommit</code> is
+     * enabled and there are uncommitted changes.
+     * Defaults to the earliest timestamp which can be stored in a zip file.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "1980-01-01T00:00:02Z")
+    private String dirtyOutputTimestamp;
+
+    /**
+     * If set, the calculated properties are also written to this file, so that they're available at runtime,
+     * e.g. <code>${project.build.outputDirectory}/scm-metadata.properties</code>.
+     * <br><br>
+     * The content only depends on the properties, and the file is only written if its content would change,
+     * so re-running the build on the same revision doesn't invalidate the output of later incremental build steps.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private File outputFile;
+
+    /**
+     * The format <code>outputFile</code> is written in.
+     * Legal values are <code>PROPERTIES</code> and <code>JSON</code>.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "PROPERTIES")
+    private String outputFormat;
+
+    /**
+     * If set, the calculated metadata is written to this file, along with a fingerprint of the checkout
+     * (the current commit and the modification time and size of the index) and of the configuration,
+     * so that later builds of the same checkout can import it using <code>importFile</code>.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private File exportFile;
+
+    /**
+     * If set, and the file exists and was exported (see <code>exportFile</code>) for the current checkout and
+     * configuration, the metadata is read from the file instead of being calculated, so the repository isn't opened.
+     * This is useful for CI pipelines which run Maven several times on the same checkout.
+     * <br><br>
+     * Changes to files in the working tree which haven't been added to the index don't invalidate the file, so the
+     * <code>dirty</code> property may be out of date if files are modified between builds.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private File importFile;
+
+    /**
+     * If true, JGit reads pack files using memory mapping instead of reading them into the heap.
+     * <br><br>
+     * This and the following settings configure JGit's cache of pack file data, which is shared by every repository
+     * in the JVM. Each setting which isn't configured is derived from the total size of the repository's packs.
+     * All sizes are in bytes.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private Boolean packedGitMmap;
+
+    /**
+     * The size of each cached part of a pack file, which must be a power of 2 of at least 4096.
+     * Derived: 8 KB, or 64 KB if the packs are at least 256 MB.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private Integer packedGitWindowSize;
+
+    /**
+     * The maximum amount of pack file data cached, which must be at least <code>packedGitWindowSize</code>.
+     * Derived: the size of the packs, between 10 MB and 256 MB (or a quarter of the maximum heap size, if smaller).
+     * The cache is kept for as long as the JVM runs, so larger values must be configured explicitly.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private Long packedGitLimit;
+
+    /**
+     * The maximum number of pack files open at once. Derived: the number of packs plus 32, and at least 128.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private Integer packedGitOpenFiles;
+
+    /**
+     * The maximum amount of inflated delta base objects cached. Derived: 1/32 of the size of the packs, between 10 MB
+     * and 64 MB.
+     *
+     * @since 1.9
+     */
+    @Parameter
+    private Integer deltaBaseCacheLimit;
+
+    /**
+     * If true, calculated metadata is cached for as long as the JVM is running, and re-used by later builds in the
+     * same JVM until the repository changes.
+     * This is only useful with build processes which outlive a single build, such as the
+     * <a href="https://github.com/apache/maven-mvnd">Maven daemon</a>.
+     * <br><br>
+     * The cache is invalidated when <code>HEAD</code>, the index or the refs change, and, unless
+     * <code>residentCacheWatchWorkingTree</code> is disabled, when a file in the working tree which isn't ignored
+     * changes.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "false")
+    private boolean residentCache;
+
+    /**
+     * If true, the working tree is watched for changes to invalidate the <code>residentCache</code>, using one watch
+     * per directory which isn't ignored.
+     * If false, only changes in the git directory invalidate the cache, so changes to files which haven't been added
+     * to the index aren't reflected in the <code>dirty</code> property.
+     * <br><br>
+     * On platforms where the JDK can only detect changes by polling (notably macOS), the working tree can't be watched
+     * reliably, so the metadata isn't cached unless this is disabled.
+     *
+     * @since 1.9
+     */
+    @Parameter(defaultValue = "true")
+    private boolean residentCacheWatchWorkingTree;
+
+    /**
+     * Incremental build support, which is provided by IDEs such as Eclipse (m2e)
+     */
+    @Component
+    private BuildContext buildContext;
+
     /**
      * The SCM URL, parsed from {@code project.scm.connection} or {@code project.scm.developerConnection}
      */
@@ -234,9 +676,24 @@ public class ScmMetadataMavenPluginMojo extends AbstractMojo {
      */
     private String calculatedScmType;
 
+    /**
+     * The parsed version of {@link #additionalProperties}
+     */
+    private Set<AdditionalProperty> calculatedAdditionalProperties;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        try {
+            executeUnlessSkipped();
+        } finally {
+            // nothing else ends the pool unless the plugin is loaded as a build extension
+            if (session != null && project != null && session.getProjects() != null) {
+                RepositoryPool.release(session, project, session.getProjects());
+            }
+        }
+    }
 
+    private void executeUnlessSkipped() throws MojoExecutionException, MojoFailureException {
         if (skip) {
             getLog().debug(String.format("skip set to \"%s\", not adding SCM information", skip));
             return;
@@ -260,18 +717,40 @@ public class ScmMetadataMavenPluginMojo extends AbstractMojo {
         Objects.requireNonNull(project, "Maven project cannot be null");
         Objects.requireNonNull(session, "Maven session cannot be null");
 
+        RepositoryPool.begin(session);
+
         if (rename == null) {
             rename = Collections.emptyMap();
         }
 
         calculatedScmUrl = calculateScmUrl();
 
+        try {
+            calculatedAdditionalProperties = AdditionalProperty.parseCsv(additionalProperties);
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException(String.format("Value for \"%s\" is invalid: %s", "additionalProperties", e.getMessage()), e);
+        }
+
         calculatedScmType = AUTO.equalsIgnoreCase(type) ? calculatedScmUrl.getProvider() : type;
 
         getLog().debug(String.format("Configured SCM: \"%s\", normalized value: \"%s\"", type, calculatedScmType));
 
         // calculate the metadata itself
-        ScmMetadata metadata = loadMetadata();
+        String fingerprint = importFile != null ? exportFingerprint() : null;
+
+        ScmMetadata metadata = importMetadata(fingerprint);
+
+        if (metadata == null) {
+            metadata = loadMetadataIncrementally();
+
+            // calculating the status can rewrite the index (e.g. "git status" with the CLI backend),
+            // which changes the fingerprint of the checkout
+            fingerprint = exportFile != null ? exportFingerprint() : null;
+        }
+
+        if (exportFile != null) {
+            exportMetadata(metadata, fingerprint);
+        }
 
         // calculate the properties based on the metadata
         Map<String, String> properties = calculateProperties(metadata);
@@ -282,19 +761,94 @@ public class ScmMetadataMavenPluginMojo extends AbstractMojo {
         // set the properties
         project.getProperties().putAll(properties);
         session.getUserProperties().putAll(properties);
+
+        if (outputFile != null) {
+            writeOutputFile(properties);
+        }
+    }
+
+    private void writeOutputFile(Map<String, String> properties) throws MojoFailureException, IOException {
+        final OutputFormat format;
+
+        try {
+            format = OutputFormat.parse(outputFormat);
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException(String.format("Value for \"%s\" is invalid: %s", "outputFormat", e.getMessage()), e);
+        }
+
+        if (MetadataFiles.write(outputFile, properties, format)) {
+            getLog().debug(String.format("Wrote properties to %s", outputFile));
+
+            if (buildContext != null) {
+                buildContext.refresh(outputFile);
+            }
+        } else {
+            getLog().debug(String.format("%s is up to date", outputFile));
+        }
     }
 
     private Map<String, String> calculateProperties(ScmMetadata metadata) throws MojoFailureException {
         Map<String, String> out = new HashMap<>();
 
         String revision = metadata.getRevision();
-        String shortRevision = revision.length() <= shortRevisionLength ? revision : revision.substring(0, shortRevisionLength);
+        String shortRevision = metadata.getShortRevision();
+
+        if (shortRevision == null) {
+            shortRevision = revision.length() <= shortRevisionLength ? revision : revision.substring(0, shortRevisionLength);
+        }
 
         out.put(calculatePropertyName("revision"), revision);
         out.put(calculatePropertyName("revision.short"), shortRevision);
         out.put(calculatePropertyName("branch"), metadata.getBranch());
         out.put(calculatePropertyName("dirty"), Boolean.toString(metadata.getUncommittedChangesPresent()));
 
+        if (metadata.getCommitCount() != null) {
+            out.put(calculatePropertyName("commit.count"), Long.toString(metadata.getCommitCount()));
+        }
+
+        if (metadata.getTagDistance() != null) {
+            out.put(calculatePropertyName("tag.distance"), Long.toString(metadata.getTagDistance()));
+        }
+
+        if (metadata.getTag() != null) {
+            out.put(calculatePropertyName("tag"), metadata.getTag());
+        }
+
+        if (metadata.getDescribe() != null) {
+            out.put(calculatePropertyName("describe"), metadata.getDescribe());
+        }
+
+        if (calculatedAdditionalProperties.contains(AdditionalProperty.COMMIT)) {
+            CommitInfo commit = metadata.getCommit();
+
+            out.put(calculatePropertyName("commit.timestamp"), commit.formatCommitTime());
+            out.put(calculatePropertyName("commit.author.name"), commit.getAuthorName());
+            out.put(calculatePropertyName("commit.author.email"), commit.getAuthorEmail());
+            out.put(calculatePropertyName("commit.committer.name"), commit.getCommitterName());
+            out.put(calculatePropertyName("commit.committer.email"), commit.getCommitterEmail());
+            out.put(calculatePropertyName("commit.subject"), commit.getSubject());
+        }
+
+        if (metadata.getWorktreeFingerprint() != null) {
+            out.put(calculatePropertyName("worktree.fingerprint"), metadata.getWorktreeFingerprint());
+        }
+
+        if (metadata.getModuleTree() != null) {
+            out.put(calculatePropertyName("module.tree"), metadata.getModuleTree());
+        }
+
+        if (outputTimestampFromCommit) {
+            // a standard Maven property, so neither prefixed nor renamed
+            out.put(OUTPUT_TIMESTAMP_PROPERTY, metadata.getUncommittedChangesPresent() ? dirtyOutputTimestamp : metadata.getCommit().formatCommitTime());
+        }
+
+        if (metadata.getUpstreamAhead() != null) {
+            out.put(calculatePropertyName("upstream.ahead"), metadata.getUpstreamAhead());
+        }
+
+        if (metadata.getUpstreamBehind() != null) {
+            out.put(calculatePropertyName("upstream.behind"), metadata.getUpstreamBehind());
+        }
 
         final Collection<PathPropertiesNotation> notation;
 
@@ -363,6 +917,112 @@ public class ScmMetadataMavenPluginMojo extends AbstractMojo {
         return ScmUrl.parse(connection);
     }
 
+    /**
+     * @return Fingerprint of the checkout and configuration, or null if it can't be determined
+     */
+    private String exportFingerprint() throws MojoFailureException {
+        if (!GIT.equalsIgnoreCase(calculatedScmType)) {
+            return null;
+        }
+
+        String checkout = CheckoutFingerprint.of(directory, getLog());
+        return checkout == null ? null : String.format("%s %s", checkout, cacheConfiguration());
+    }
+
+    /**
+     * @return The metadata from {@link #importFile}, or null if it doesn't exist or is out of date
+     */
+    private ScmMetadata importMetadata(String fingerprint) throws IOException {
+        if (importFile == null || fingerprint == null || !importFile.isFile()) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+
+        try (InputStream in = new FileInputStream(importFile)) {
+            properties.load(in);
+        }
+
+        final ScmMetadata metadata;
+
+        try {
+            metadata = MetadataExport.load(properties, fingerprint);
+        } catch (IllegalArgumentException e) {
+            getLog().warn(String.format("Ignoring malformed metadata in %s: %s", importFile, e.getMessage()));
+            return null;
+        }
+
+        if (metadata == null) {
+            getLog().debug(String.format("%s was exported for a different checkout or configuration", importFile));
+        } else {
+            getLog().debug(String.format("Imported metadata from %s", importFile));
+        }
+
+        return metadata;
+    }
+
+    private void exportMetadata(ScmMetadata metadata, String fingerprint) throws IOException {
+        if (fingerprint == null) {
+            getLog().warn(String.format("Unable to fingerprint the checkout, not exporting metadata to %s", exportFile));
+            return;
+        }
+
+        if (MetadataFiles.write(exportFile, MetadataExport.export(metadata, fingerprint), OutputFormat.PROPERTIES)) {
+            getLog().debug(String.format("Exported metadata to %s", exportFile));
+        }
+    }
+
+    /**
+     * During incremental builds in an IDE, re-use the metadata calculated by the previous build, unless {@code HEAD},
+     * the index, the refs or the configuration changed since then.
+     * <br><br>
+     * Changes to files in the working tree which haven't been added to the index aren't detected, so the
+     * <code>dirty</code> property may be out of date until the next full build.
+     */
+    private ScmMetadata loadMetadataIncrementally() throws Exception {
+        if (buildContext == null || !buildContext.isIncremental()) {
+            return residentCache ? loadMetadataResident() : loadMetadata();
+        }
+
+        RepositoryState state = RepositoryState.of(directory);
+
+        if (state == null || state.isRacy()) {
+            return loadMetadata();
+        }
+
+        String configuration = cacheConfiguration();
+        Object cached = buildContext.getValue(CACHED_METADATA_KEY);
+
+        if (cached instanceof CachedMetadata
+            && ((CachedMetadata) cached).state.equals(state)
+            && ((CachedMetadata) cached).configuration.equals(configuration)) {
+            getLog().debug("Repository is unchanged since the previous incremental build, re-using SCM metadata");
+            return ((CachedMetadata) cached).metadata;
+        }
+
+        ScmMetadata metadata = loadMetadata();
+        buildContext.setValue(CACHED_METADATA_KEY, new CachedMetadata(state, configuration, metadata));
+        return metadata;
+    }
+
+    private ScmMetadata loadMetadataResident() throws Exception {
+        return ResidentMetadataCache.get(directory, cacheConfiguration(), residentCacheWatchWorkingTree, new Callable<ScmMetadata>() {
+
+            @Override
+            public ScmMetadata call() throws Exception {
+                return loadMetadata();
+            }
+
+        }, getLog());
+    }
+
+    /**
+     * @return Description of the configuration the metadata depends on, besides the state of the repository
+     */
+    private String cacheConfiguration() throws MojoFailureException {
+        return String.format("%s %s %s %s", calculatedScmType, calculatedScmUrl, directory.getAbsolutePath(), gitOptions());
+    }
+
     private ScmMetadata loadMetadata() throws MojoFailureException {
         boolean foundMatchingProvider = false;
 
@@ -387,10 +1047,139 @@ public class ScmMetadataMavenPluginMojo extends AbstractMojo {
         throw new MojoFailureException(String.format("Unsupported SCM \"%s\"", calculatedScmType));
     }
 
-    private List<ScmMetadataProvider> loadAllProviders() {
+    private GitOptions gitOptions() throws MojoFailureException {
+        final GitBackend backend;
+
+        try {
+            backend = GitBackend.parse(gitBackend);
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException(String.format("Value for \"%s\" is invalid: %s", "gitBackend", e.getMessage()), e);
+        }
+
+        Set<AdditionalProperty> additional = EnumSet.noneOf(AdditionalProperty.class);
+        additional.addAll(calculatedAdditionalProperties);
+
+        // the output timestamp is derived from the commit time
+        if (outputTimestampFromCommit) {
+            additional.add(AdditionalProperty.COMMIT);
+        }
+
+        requirePositive("tagSearchDepth", tagSearchDepth);
+        requirePositive("tagSearchCandidates", tagSearchCandidates);
+        requirePositive("upstreamSearchDepth", upstreamSearchDepth);
+
+        if (detachedBranchSearchDepth < 0) {
+            throw new MojoFailureException(String.format("Value for \"%s\" is invalid: must not be negative, got %d", "detachedBranchSearchDepth", detachedBranchSearchDepth));
+        }
+
+        GitOptions.GitOptionsBuilder builder = GitOptions.builder()
+            .contentHashCache(contentHashCache)
+            .statOnlyFilteredFiles(statOnlyFilteredFiles)
+            .backend(backend)
+            .uniqueShortRevision(uniqueShortRevision)
+            .shortRevisionLength(shortRevisionLength)
+            .additionalProperties(additional)
+            .tagSearchDepth(tagSearchDepth)
+            .tagSearchCandidates(tagSearchCandidates)
+            .upstreamSearchDepth(upstreamSearchDepth)
+            .recoverDetachedBranch(recoverDetachedBranch)
+            .detachedBranchSearchDepth(detachedBranchSearchDepth)
+            .windowCache(windowCacheSettings());
+
+        if (Util.isNonBlank(gitExecutable)) {
+            builder.executable(gitExecutable);
+        }
+
+        if (Util.isNonBlank(environmentRevisionVariables)) {
+            builder.environmentRevisionVariables(parseList(environmentRevisionVariables));
+        }
+
+        if (Util.isNonBlank(environmentBranchVariables)) {
+            builder.environmentBranchVariables(parseList(environmentBranchVariables));
+        }
+
+        builder.environmentAssumeClean(environmentAssumeClean);
+
+        return builder.build();
+    }
+
+    private WindowCacheSettings windowCacheSettings() throws MojoFailureException {
+        if (packedGitWindowSize != null && (packedGitWindowSize < 4096 || Integer.bitCount(packedGitWindowSize) != 1)) {
+            throw new MojoFailureException(String.format("Value for \"%s\" is invalid: must be a power of 2 of at least 4096, got %d", "packedGitWindowSize", packedGitWindowSize));
+        }
+
+        if (packedGitLimit != null && packedGitLimit < Util.firstNonNull(packedGitWindowSize, 4096)) {
+            throw new MojoFailureException(String.format("Value for \"%s\" is invalid: must be at least the window size, got %d", "packedGitLimit", packedGitLimit));
+        }
+
+        if (packedGitOpenFiles != null) {
+            requirePositive("packedGitOpenFiles", packedGitOpenFiles);
+        }
+
+        if (deltaBaseCacheLimit != null) {
+            requirePositive("deltaBaseCacheLimit", deltaBaseCacheLimit);
+        }
+
+        return WindowCacheSettings.builder()
+            .packedGitMmap(packedGitMmap)
+            .packedGitWindowSize(packedGitWindowSize)
+            .packedGitLimit(packedGitLimit)
+            .packedGitOpenFiles(packedGitOpenFiles)
+            .deltaBaseCacheLimit(deltaBaseCacheLimit)
+            .build();
+    }
+
+    private static List<String> parseList(String csv) {
+        List<String> out = new ArrayList<>();
+
+        for (String value : csv.split(",")) {
+            if (Util.isNonBlank(value)) {
+                out.add(value.trim());
+            }
+        }
+
+        return out;
+    }
+
+    private void requirePositive(String name, int value) throws MojoFailureException {
+        if (value <= 0) {
+            throw new MojoFailureException(String.format("Value for \"%s\" is invalid: must be positive, got %d", name, value));
+        }
+    }
+
+    private List<ScmMetadataProvider> loadAllProviders() throws MojoFailureException {
+        GitOptions gitOptions = gitOptions();
+
         List<ScmMetadataProvider> out = new ArrayList<>();
         // TODO dynamic SCM metadata provider loader
-        out.add(new GitScmMetadataProvider());
+
+        // providers are consulted in order, so the JGit provider acts as a fallback if the CLI provider can't be used
+        if (gitOptions.getBackend() == GitBackend.CLI) {
+            out.add(new GitCliScmMetadataProvider(gitOptions));
+        }
+
+        if (gitOptions.getBackend() == GitBackend.ENVIRONMENT) {
+            out.add(new GitEnvironmentScmMetadataProvider(gitOptions));
+        }
+
+        out.add(new GitScmMetadataProvider(gitOptions));
         return Collections.unmodifiableList(out);
     }
+
+    private static final class CachedMetadata {
+
+        private final RepositoryState state;
+
+        private final String configuration;
+
+        private final ScmMetadata metadata;
+
+        private CachedMetadata(RepositoryState state, String configuration, ScmMetadata metadata) {
+            this.state = state;
+            this.configuration = configuration;
+            this.metadata = metadata;
+        }
+
+    }
+
 }
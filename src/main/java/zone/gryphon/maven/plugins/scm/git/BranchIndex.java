@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefComparator;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index of the local and remote-tracking branches in a repository, keyed by the commit each branch points to.
+ * Used to recover a branch name when {@code HEAD} is detached, which is how most CI servers check out a build.
+ * <br><br>
+ * Like {@link TagIndex}, indexes are shared by every module and plugin execution in the build, and are rebuilt only if
+ * {@code packed-refs}, or any of the loose refs under {@code refs/heads} or {@code refs/remotes}, change.
+ */
+class BranchIndex {
+
+    private static final SignatureCache<BranchIndex> CACHE = SignatureCache.create();
+
+    private static final String PACKED_REFS = "packed-refs";
+
+    /**
+     * Load the index for the given repository, re-using a previously built index if the branches haven't changed
+     *
+     * @param repo The repository
+     * @param log  Logger
+     * @return The index
+     * @throws IOException If the refs can't be read
+     */
+    static BranchIndex load(@NonNull Repository repo, @NonNull Log log) throws IOException {
+        File key = repo.getDirectory().getAbsoluteFile();
+        long time = System.currentTimeMillis();
+        List<FileSignature> signatures = signatures(repo.getDirectory());
+
+        BranchIndex cached = CACHE.get(key, signatures);
+
+        if (cached != null) {
+            log.debug(String.format("Re-using index of %d branch tips", cached.branches.size()));
+            return cached;
+        }
+
+        BranchIndex index = new BranchIndex(build(repo.getRefDatabase()));
+        CACHE.put(key, signatures, time, index);
+
+        log.debug(String.format("Indexed %d branch tips", index.branches.size()));
+        return index;
+    }
+
+    private static List<FileSignature> signatures(File gitDir) throws IOException {
+        List<FileSignature> out = new ArrayList<>();
+        out.add(FileSignature.of(new File(gitDir, PACKED_REFS)));
+        FileSignature.addAll(new File(gitDir, Constants.R_HEADS), out);
+        FileSignature.addAll(new File(gitDir, Constants.R_REMOTES), out);
+        return out;
+    }
+
+    /**
+     * Maps each branch tip to a single branch name. Local branches are preferred to remote-tracking branches,
+     * then the lexicographically least name is used, so the result doesn't depend on the order refs are listed in.
+     * The map iterates in the same order of preference.
+     */
+    private static Map<ObjectId, String> build(RefDatabase refs) throws IOException {
+        Map<ObjectId, String> out = new LinkedHashMap<>();
+
+        addAll(refs.getRefsByPrefix(Constants.R_HEADS), Constants.R_HEADS.length(), out);
+
+        // also strip the name of the remote, e.g. refs/remotes/origin/feature becomes feature
+        addAll(refs.getRefsByPrefix(Constants.R_REMOTES), Constants.R_REMOTES.length(), out);
+
+        return Collections.unmodifiableMap(out);
+    }
+
+    private static void addAll(List<Ref> refs, int prefixLength, Map<ObjectId, String> out) {
+        Map<String, ObjectId> ids = new TreeMap<>();
+
+        for (Ref ref : RefComparator.sort(refs)) {
+            String name = ref.getName().substring(prefixLength);
+
+            if (prefixLength == Constants.R_REMOTES.length()) {
+                name = name.substring(name.indexOf('/') + 1);
+            }
+
+            // symbolic refs such as refs/remotes/origin/HEAD don't name a branch
+            if (ref.isSymbolic() || ref.getObjectId() == null || Constants.HEAD.equals(name)) {
+                continue;
+            }
+
+            // refs are sorted, so a branch which exists on multiple remotes is taken from the least remote name
+            if (!ids.containsKey(name)) {
+                ids.put(name, ref.getObjectId());
+            }
+        }
+
+        for (Map.Entry<String, ObjectId> entry : ids.entrySet()) {
+            if (!out.containsKey(entry.getValue())) {
+                out.put(entry.getValue(), entry.getKey());
+            }
+        }
+    }
+
+    private final Map<ObjectId, String> branches;
+
+    private BranchIndex(Map<ObjectId, String> branches) {
+        this.branches = branches;
+    }
+
+    /**
+     * @param commit A commit id
+     * @return The name of the branch pointing to the commit, or null if no branch points to the commit
+     */
+    String branchAt(@NonNull AnyObjectId commit) {
+        return branches.get(commit);
+    }
+
+    /**
+     * Find the branch with the fewest commits between its tip and the given commit, by walking history breadth
+     * first from every branch tip at once (the equivalent of a bounded {@code git branch --contains}).
+     * The walk stops after visiting {@code maxDepth} commits, including the tips themselves.
+     *
+     * @param repo     The repository
+     * @param commit   The commit
+     * @param maxDepth The maximum number of commits to visit
+     * @return The name of the nearest branch containing the commit, or null if none was found within the limit
+     * @throws IOException If the repository can't be read
+     */
+    String branchContaining(@NonNull Repository repo, @NonNull AnyObjectId commit, int maxDepth) throws IOException {
+        Map<ObjectId, String> reachedFrom = new HashMap<>(branches);
+        Deque<ObjectId> pending = new ArrayDeque<>(branches.keySet());
+
+        try (RevWalk walk = new RevWalk(repo)) {
+            walk.setRetainBody(false);
+
+            for (int visited = 0; visited < maxDepth && !pending.isEmpty(); visited++) {
+                ObjectId id = pending.poll();
+                String name = reachedFrom.get(id);
+
+                if (commit.equals(id)) {
+                    return name;
+                }
+
+                final RevCommit parsed;
+
+                try {
+                    parsed = walk.parseCommit(id);
+                } catch (MissingObjectException | IncorrectObjectTypeException e) {
+                    // branch points to something other than an available commit
+                    continue;
+                }
+
+                for (RevCommit parent : parsed.getParents()) {
+                    if (!reachedFrom.containsKey(parent)) {
+                        reachedFrom.put(parent.copy(), name);
+                        pending.add(parent.copy());
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+}
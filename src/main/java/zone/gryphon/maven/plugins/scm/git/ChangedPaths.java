@@ -0,0 +1,175 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The paths which differ between a base revision and the current state of a repository
+ */
+public class ChangedPaths {
+
+    /**
+     * Find the paths which changed since a base revision, using a single diff.
+     * <br><br>
+     * If the working tree is included, the base tree is compared directly with the index and working tree, which
+     * includes both the commits since the base revision and any uncommitted (or untracked) changes.
+     * Otherwise the base tree is compared with the tree of {@code HEAD}, skipping identical subtrees.
+     *
+     * @param directory          A directory in the repository
+     * @param baseRef            The base revision, e.g. {@code origin/master}
+     * @param mergeBase          If true, compare with the merge base of {@code baseRef} and {@code HEAD} instead
+     * @param includeWorkingTree If true, include uncommitted changes
+     * @param options            Options used to compare the working tree
+     * @param log                Logger
+     * @return The changed paths
+     * @throws IOException If the repository can't be read
+     */
+    public static ChangedPaths find(
+        @NonNull File directory,
+        @NonNull String baseRef,
+        boolean mergeBase,
+        boolean includeWorkingTree,
+        @NonNull GitOptions options,
+        @NonNull Log log
+    ) throws IOException {
+        File gitDir = AbstractGitScmMetadataProvider.findGitDir(directory);
+
+        if (gitDir == null) {
+            throw new IllegalArgumentException(String.format("not a git repository (or any of the parent directories): %s", directory.getPath()));
+        }
+
+        options.getWindowCache().install(gitDir, log);
+
+        try (Repository repo = RepositoryPool.open(gitDir)) {
+            ObjectId head = repo.resolve(Constants.HEAD);
+            ObjectId base = repo.resolve(baseRef + "^{commit}");
+
+            if (head == null) {
+                throw new IllegalStateException(String.format("HEAD does not point to a commit in repository %s", gitDir));
+            }
+
+            if (base == null) {
+                throw new IllegalArgumentException(String.format("Unable to resolve base revision \"%s\"", baseRef));
+            }
+
+            if (mergeBase) {
+                base = mergeBase(repo, base, head, log);
+            }
+
+            log.debug(String.format("Finding paths changed since %s", base.name()));
+
+            Set<String> paths = includeWorkingTree ? diffWorkingTree(repo, base, options, log) : diffTrees(repo, base, head);
+
+            return new ChangedPaths(repo.getWorkTree(), base, Collections.unmodifiableSet(paths));
+        }
+    }
+
+    private static ObjectId mergeBase(Repository repo, ObjectId base, ObjectId head, Log log) throws IOException {
+        try (RevWalk walk = new RevWalk(repo)) {
+            walk.setRevFilter(RevFilter.MERGE_BASE);
+            walk.markStart(walk.parseCommit(base));
+            walk.markStart(walk.parseCommit(head));
+
+            RevCommit mergeBase = walk.next();
+
+            if (mergeBase == null) {
+                log.warn(String.format("%s and HEAD have no common history, comparing with %s", base.name(), base.name()));
+                return base;
+            }
+
+            return mergeBase.copy();
+        }
+    }
+
+    private static Set<String> diffWorkingTree(Repository repo, ObjectId base, GitOptions options, Log log) throws IOException {
+        Status status = new Status(WorkingTreeStatus.diff(repo, base, options, log));
+
+        Set<String> out = new HashSet<>(status.getUncommittedChanges());
+        out.addAll(status.getUntracked());
+        return out;
+    }
+
+    private static Set<String> diffTrees(Repository repo, ObjectId base, ObjectId head) throws IOException {
+        Set<String> out = new HashSet<>();
+
+        try (RevWalk walk = new RevWalk(repo); TreeWalk tree = new TreeWalk(repo)) {
+            tree.addTree(walk.parseCommit(base).getTree());
+            tree.addTree(walk.parseCommit(head).getTree());
+            tree.setFilter(TreeFilter.ANY_DIFF);
+            tree.setRecursive(true);
+
+            while (tree.next()) {
+                out.add(tree.getPathString());
+            }
+        }
+
+        return out;
+    }
+
+    private final File workTree;
+
+    private final ObjectId base;
+
+    private final Set<String> paths;
+
+    private ChangedPaths(File workTree, ObjectId base, Set<String> paths) {
+        this.workTree = workTree;
+        this.base = base;
+        this.paths = paths;
+    }
+
+    /**
+     * @return The revision the paths were compared with
+     */
+    public String getBase() {
+        return base.name();
+    }
+
+    /**
+     * @return The changed paths, relative to the root of the working tree, separated by forward slashes
+     */
+    public Set<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * @param file A file or directory
+     * @return The path of the file relative to the root of the working tree, in the same format as
+     * {@link #getPaths()} (empty for the root itself), or null if the file is outside of the working tree
+     * @throws IOException If the path can't be resolved
+     */
+    public String relativePath(@NonNull File file) throws IOException {
+        return AbstractGitScmMetadataProvider.relativePath(workTree, file);
+    }
+
+}
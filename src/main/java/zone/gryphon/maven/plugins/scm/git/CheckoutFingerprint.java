@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Identifies the state of a checkout by the commit {@code HEAD} points to and the modification time and size of the
+ * index, which are read without opening the repository.
+ * <br><br>
+ * Used to validate metadata exported by an earlier build of the same checkout. Changes to files in the working tree
+ * which haven't been added to the index don't change the fingerprint.
+ */
+@UtilityClass
+public final class CheckoutFingerprint {
+
+    private static final String INDEX = "index";
+
+    /**
+     * @param directory A directory in the working tree
+     * @param log       Logger
+     * @return The fingerprint of the checkout containing the directory, or null if it can't be determined without
+     * opening the repository
+     */
+    public static String of(@NonNull File directory, @NonNull Log log) {
+        File gitDir = AbstractGitScmMetadataProvider.findGitDir(directory);
+
+        if (gitDir == null) {
+            return null;
+        }
+
+        HeadRef head = HeadRef.resolve(gitDir, log);
+
+        if (head == null || head.getId() == null) {
+            return null;
+        }
+
+        try {
+            FileSignature index = FileSignature.of(new File(gitDir, INDEX));
+            return String.format("%s %s %d %d", head.getId(), head.getRef(), index.getLastModified(), index.getLength());
+        } catch (IOException e) {
+            log.debug(String.format("Failed to read the index of %s: %s", gitDir, e.getMessage()));
+            return null;
+        }
+    }
+
+}
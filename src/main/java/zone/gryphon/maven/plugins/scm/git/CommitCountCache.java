@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of the number of commits reachable from individual commits, used to calculate the count for a
+ * new commit incrementally from the count of one of its ancestors when the repository doesn't have a commit-graph.
+ * <br><br>
+ * The cache is a text file containing one {@code <commit id> <count>} entry per line, most recently used first.
+ * Only the most recently used {@value #MAX_ENTRIES} entries are retained.
+ */
+class CommitCountCache {
+
+    private static final String CACHE_PATH = "scm-metadata-maven-plugin/commit-counts";
+
+    private static final int MAX_ENTRIES = 256;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Loads the cache stored in the given git directory.
+     * An empty cache is returned if the cache doesn't exist or can't be read.
+     *
+     * @param gitDir The git directory
+     * @param log    Logger
+     * @return The cache
+     */
+    static CommitCountCache load(@NonNull File gitDir, @NonNull Log log) {
+        File file = new File(gitDir, CACHE_PATH);
+        Map<ObjectId, Long> entries = new LinkedHashMap<>();
+
+        if (!file.isFile()) {
+            return new CommitCountCache(file, entries);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null && entries.size() < MAX_ENTRIES) {
+                String[] parts = line.trim().split(" ");
+
+                if (parts.length != 2 || !ObjectId.isId(parts[0])) {
+                    log.debug(String.format("Ignoring commit count cache with unrecognized format: %s", file));
+                    return new CommitCountCache(file, new LinkedHashMap<ObjectId, Long>());
+                }
+
+                entries.put(ObjectId.fromString(parts[0]), Long.parseLong(parts[1]));
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.debug(String.format("Failed to read commit count cache %s: %s", file, e.getMessage()));
+            return new CommitCountCache(file, new LinkedHashMap<ObjectId, Long>());
+        }
+
+        return new CommitCountCache(file, entries);
+    }
+
+    private final File file;
+
+    /**
+     * Cached counts, least recently used first
+     */
+    private final Map<ObjectId, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private boolean modified;
+
+    private CommitCountCache(File file, Map<ObjectId, Long> mostRecentFirst) {
+        this.file = file;
+
+        List<Map.Entry<ObjectId, Long>> list = new ArrayList<>(mostRecentFirst.entrySet());
+        Collections.reverse(list);
+
+        for (Map.Entry<ObjectId, Long> entry : list) {
+            entries.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @param commit A commit id
+     * @return The cached count for the commit, or null if it isn't cached
+     */
+    Long get(AnyObjectId commit) {
+        // updates the order of the entries, but doesn't by itself warrant re-writing the cache
+        return entries.get(commit);
+    }
+
+    /**
+     * @return The ids of all cached commits
+     */
+    List<ObjectId> commits() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * @param commit A commit id
+     * @param count  The number of commits reachable from the commit
+     */
+    void put(AnyObjectId commit, long count) {
+        entries.put(commit.copy(), count);
+        modified = true;
+    }
+
+    /**
+     * Write the cache back to disk, if it changed.
+     * Failures are logged and otherwise ignored, since the cache is purely an optimization.
+     *
+     * @param log Logger
+     */
+    void save(@NonNull Log log) {
+        if (!modified) {
+            return;
+        }
+
+        File tmp = null;
+
+        try {
+            File parent = file.getParentFile();
+
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException(String.format("Failed to create directory %s", parent));
+            }
+
+            tmp = File.createTempFile(file.getName(), ".tmp", parent);
+
+            List<Map.Entry<ObjectId, Long>> list = new ArrayList<>(entries.entrySet());
+            Collections.reverse(list);
+
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), UTF_8))) {
+                for (Map.Entry<ObjectId, Long> entry : list.subList(0, Math.min(list.size(), MAX_ENTRIES))) {
+                    out.write(String.format("%s %d%n", entry.getKey().name(), entry.getValue()));
+                }
+            }
+
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug(String.format("Wrote %d entries to commit count cache %s", Math.min(list.size(), MAX_ENTRIES), file));
+        } catch (IOException e) {
+            log.debug(String.format("Failed to write commit count cache %s: %s", file, e.getMessage()));
+
+            if (tmp != null && tmp.exists() && !tmp.delete()) {
+                log.debug(String.format("Failed to delete %s", tmp));
+            }
+        }
+    }
+
+}
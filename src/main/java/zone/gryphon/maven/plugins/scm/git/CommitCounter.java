@@ -0,0 +1,566 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import lombok.Value;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectDatabase;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.IntList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Counts the commits reachable from a commit, and the number of commits since the nearest tag.
+ * <br><br>
+ * If the repository has a {@link CommitGraphFile commit-graph}, history is walked using the parent positions stored
+ * in the graph, so commit objects only need to be parsed for commits newer than the graph.
+ * Otherwise commits are parsed using a {@link RevWalk}, and counts are stored in a {@link CommitCountCache}, so that
+ * subsequent counts only need to walk the commits which aren't reachable from a previously counted ancestor.
+ */
+class CommitCounter implements AutoCloseable {
+
+    private static final String SHALLOW_FILE = "shallow";
+
+    /**
+     * Create a counter for the given repository
+     *
+     * @param repo The repository
+     * @param log  Logger
+     * @return The counter
+     */
+    static CommitCounter create(@NonNull Repository repo, @NonNull Log log) {
+        CommitGraphFile graph = null;
+
+        // git doesn't write or use commit-graphs in shallow repositories, since the graph would disagree with the grafts
+        if (!new File(repo.getDirectory(), SHALLOW_FILE).exists()) {
+            ObjectDatabase database = repo.getObjectDatabase();
+            File objects = database instanceof ObjectDirectory ? ((ObjectDirectory) database).getDirectory() : new File(repo.getDirectory(), "objects");
+            graph = CommitGraphFile.load(objects, log);
+        }
+
+        CommitCountCache cache = graph == null ? CommitCountCache.load(repo.getDirectory(), log) : null;
+
+        return new CommitCounter(repo, graph, cache, log);
+    }
+
+    private final RevWalk walk;
+
+    private final CommitGraphFile graph;
+
+    private final CommitCountCache cache;
+
+    private final Log log;
+
+    private final Map<ObjectId, Long> counts = new HashMap<>();
+
+    private CommitCounter(Repository repo, CommitGraphFile graph, CommitCountCache cache, Log log) {
+        this.walk = new RevWalk(repo);
+        this.walk.setRetainBody(false);
+        this.graph = graph;
+        this.cache = cache;
+        this.log = log;
+    }
+
+    /**
+     * @param commit A commit id
+     * @return The number of commits reachable from the commit, including the commit itself
+     * @throws IOException If the repository can't be read
+     */
+    long count(@NonNull AnyObjectId commit) throws IOException {
+        Long count = counts.get(commit);
+
+        if (count == null) {
+            count = graph != null ? countUsingGraph(commit) : countUsingCache(commit);
+            counts.put(commit.copy(), count);
+        }
+
+        return count;
+    }
+
+    /**
+     * Find the tag with the fewest commits between it and the given commit.
+     * <br><br>
+     * Candidate tags are found by walking history breadth first from the commit, without walking past tagged
+     * commits. The walk stops once {@code maxCandidates} tagged commits have been found, or once {@code maxDepth}
+     * commits have been visited, so in repositories with many tags or long untagged histories the result is the
+     * nearest of the candidates found within those limits.
+     *
+     * @param commit        The commit
+     * @param tags          Tag names, keyed by the id of the commit they point to
+     * @param maxDepth      The maximum number of commits to visit while searching for tags
+     * @param maxCandidates The maximum number of tagged commits to consider
+     * @return The nearest tag, or null if no tag was found
+     * @throws IOException If the repository can't be read
+     */
+    TagDistance nearestTag(
+        @NonNull AnyObjectId commit,
+        @NonNull Map<? extends AnyObjectId, String> tags,
+        int maxDepth,
+        int maxCandidates
+    ) throws IOException {
+        TagDistance nearest = null;
+
+        if (tags.isEmpty()) {
+            return null;
+        }
+
+        for (ObjectId candidate : taggedAncestors(commit, tags, maxDepth, maxCandidates)) {
+            long distance = distance(commit, candidate);
+            String name = tags.get(candidate);
+
+            if (nearest == null || distance < nearest.getDistance()
+                || (distance == nearest.getDistance() && name.compareTo(nearest.getTag()) > 0)) {
+                nearest = new TagDistance(name, candidate, distance);
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Count the commits reachable from {@code local} which aren't reachable from {@code upstream}, and vice versa
+     * (equivalent to {@code git rev-list --left-right --count local...upstream}).
+     * <br><br>
+     * History is walked from both commits at once, newest first, marking each commit with the side(s) it's reachable
+     * from, until every commit left to visit is reachable from both sides.
+     * With a commit-graph, commits are ordered by generation number, so every commit is visited after all of its
+     * descendants, and commits in the graph don't need to be parsed. Otherwise commits are ordered by commit time,
+     * as {@code git} does without a commit-graph.
+     *
+     * @param local    The local commit
+     * @param upstream The upstream commit
+     * @param maxDepth The maximum number of commits to visit
+     * @return The counts. A count which couldn't be determined by visiting {@code maxDepth} commits is null.
+     * @throws IOException If the repository can't be read
+     */
+    Divergence divergence(@NonNull AnyObjectId local, @NonNull AnyObjectId upstream, int maxDepth) throws IOException {
+        return new DivergenceWalk().run(local, upstream, maxDepth);
+    }
+
+    @Override
+    public void close() {
+        walk.close();
+
+        if (cache != null) {
+            cache.save(log);
+        }
+    }
+
+    /**
+     * Walks history from the given commit, without walking past tagged commits.
+     * Within the limits, every tag which is reachable without passing through another tagged commit is returned,
+     * which includes every tag that could be the nearest.
+     */
+    private Set<ObjectId> taggedAncestors(
+        AnyObjectId commit,
+        Map<? extends AnyObjectId, String> tags,
+        int maxDepth,
+        int maxCandidates
+    ) throws IOException {
+        Set<ObjectId> found = new HashSet<>();
+        Set<ObjectId> seen = new HashSet<>();
+        Deque<ObjectId> pending = new ArrayDeque<>();
+        IntList positions = new IntList(4);
+
+        pending.add(commit.copy());
+
+        while (!pending.isEmpty() && found.size() < maxCandidates) {
+            ObjectId id = pending.poll();
+
+            if (!seen.add(id)) {
+                continue;
+            }
+
+            if (tags.containsKey(id)) {
+                found.add(id);
+                continue;
+            }
+
+            if (seen.size() >= maxDepth) {
+                log.debug(String.format("Stopped searching for tags after visiting %d commits", seen.size()));
+                break;
+            }
+
+            int position = graph == null ? -1 : graph.find(id);
+
+            if (position >= 0) {
+                graph.parents(position, positions);
+
+                for (int i = 0; i < positions.size(); i++) {
+                    pending.add(graph.id(positions.get(i)));
+                }
+            } else {
+                for (RevCommit parent : walk.parseCommit(id).getParents()) {
+                    pending.add(parent);
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @return The number of commits reachable from {@code commit} which aren't reachable from {@code ancestor}
+     */
+    private long distance(AnyObjectId commit, AnyObjectId ancestor) throws IOException {
+        if (graph != null) {
+            return count(commit) - count(ancestor);
+        }
+
+        walk.reset();
+        walk.markStart(walk.parseCommit(commit));
+        walk.markUninteresting(walk.parseCommit(ancestor));
+
+        long distance = 0;
+
+        while (walk.next() != null) {
+            distance++;
+        }
+
+        return distance;
+    }
+
+    private long countUsingGraph(AnyObjectId commit) throws IOException {
+        BitSet visited = new BitSet(graph.size());
+        int[] stack = new int[64];
+        int size = 0;
+
+        // commits newer than the graph have to be parsed, until the walk reaches commits which are in the graph
+        Set<ObjectId> outsideGraph = new HashSet<>();
+        Deque<ObjectId> pending = new ArrayDeque<>();
+        pending.add(commit.copy());
+
+        while (!pending.isEmpty()) {
+            ObjectId id = pending.poll();
+            int position = graph.find(id);
+
+            if (position >= 0) {
+                if (!visited.get(position)) {
+                    visited.set(position);
+                    stack = push(stack, size++, position);
+                }
+            } else if (outsideGraph.add(id)) {
+                for (RevCommit parent : walk.parseCommit(id).getParents()) {
+                    pending.add(parent);
+                }
+            }
+        }
+
+        IntList parents = new IntList(4);
+
+        while (size > 0) {
+            graph.parents(stack[--size], parents);
+
+            for (int i = 0; i < parents.size(); i++) {
+                int parent = parents.get(i);
+
+                if (!visited.get(parent)) {
+                    visited.set(parent);
+                    stack = push(stack, size++, parent);
+                }
+            }
+        }
+
+        if (!outsideGraph.isEmpty()) {
+            log.debug(String.format("%d commit(s) reachable from %s are newer than the commit-graph", outsideGraph.size(), commit.name()));
+        }
+
+        return outsideGraph.size() + visited.cardinality();
+    }
+
+    private static int[] push(int[] stack, int index, int value) {
+        if (index == stack.length) {
+            int[] larger = new int[stack.length * 2];
+            System.arraycopy(stack, 0, larger, 0, stack.length);
+            stack = larger;
+        }
+
+        stack[index] = value;
+        return stack;
+    }
+
+    private long countUsingCache(AnyObjectId commit) throws IOException {
+        Long cached = cache.get(commit);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        RevCommit start = walk.parseCommit(commit);
+        RevCommit ancestor = findCachedAncestor(start);
+
+        walk.reset();
+        walk.markStart(start);
+
+        long count = 0;
+
+        if (ancestor != null) {
+            walk.markUninteresting(ancestor);
+            count = cache.get(ancestor);
+            log.debug(String.format("Counting commits reachable from %s incrementally from %s", commit.name(), ancestor.name()));
+        }
+
+        while (walk.next() != null) {
+            count++;
+        }
+
+        cache.put(commit, count);
+        return count;
+    }
+
+    /**
+     * Walks history from the given commit until reaching previously counted commits.
+     * A counted commit which is the parent of a commit reached by the walk must be an ancestor of the given commit.
+     *
+     * @return The counted ancestor with the highest count, or null if no counted commit is an ancestor
+     */
+    private RevCommit findCachedAncestor(RevCommit start) throws IOException {
+        List<ObjectId> commits = cache.commits();
+
+        if (commits.isEmpty()) {
+            return null;
+        }
+
+        walk.reset();
+        walk.markStart(start);
+
+        Set<RevCommit> counted = new HashSet<>();
+
+        for (ObjectId id : commits) {
+            try {
+                RevCommit commit = walk.parseCommit(id);
+                walk.markUninteresting(commit);
+                counted.add(commit);
+            } catch (MissingObjectException | IncorrectObjectTypeException e) {
+                // commit was garbage collected, can't be an ancestor
+            }
+        }
+
+        List<RevCommit> ancestors = new ArrayList<>();
+        RevCommit next;
+
+        while ((next = walk.next()) != null) {
+            for (RevCommit parent : next.getParents()) {
+                if (counted.contains(parent)) {
+                    ancestors.add(parent);
+                }
+            }
+        }
+
+        RevCommit best = null;
+
+        for (RevCommit ancestor : ancestors) {
+            if (best == null || cache.get(ancestor) > cache.get(best)) {
+                best = ancestor;
+            }
+        }
+
+        return best;
+    }
+
+    @Value
+    static class Divergence {
+
+        /**
+         * The number of commits only reachable from the local commit, or null if unknown
+         */
+        private final Long ahead;
+
+        /**
+         * The number of commits only reachable from the upstream commit, or null if unknown
+         */
+        private final Long behind;
+
+    }
+
+    /**
+     * State of a single {@link #divergence} calculation
+     */
+    private class DivergenceWalk {
+
+        private static final int LOCAL = 1;
+
+        private static final int UPSTREAM = 2;
+
+        private static final int BOTH = LOCAL | UPSTREAM;
+
+        private final Map<ObjectId, Node> nodes = new HashMap<>();
+
+        private final PriorityQueue<Node> queue = new PriorityQueue<>(64, new Comparator<Node>() {
+            @Override
+            public int compare(Node a, Node b) {
+                if (a.generation != b.generation) {
+                    return a.generation > b.generation ? -1 : 1;
+                }
+
+                return a.time == b.time ? 0 : (a.time > b.time ? -1 : 1);
+            }
+        });
+
+        /**
+         * Number of queued commits, indexed by the side(s) they're reachable from
+         */
+        private final int[] queued = new int[BOTH + 1];
+
+        /**
+         * Number of visited commits, indexed by the side(s) they're reachable from
+         */
+        private final long[] counted = new long[BOTH + 1];
+
+        private final IntList positions = new IntList(4);
+
+        private Divergence run(AnyObjectId local, AnyObjectId upstream, int maxDepth) throws IOException {
+            paint(node(local.copy()), LOCAL);
+            paint(node(upstream.copy()), UPSTREAM);
+
+            int visited = 0;
+
+            while (queued[LOCAL] > 0 || queued[UPSTREAM] > 0) {
+                if (visited++ >= maxDepth) {
+                    log.debug(String.format("Stopped counting divergence from %s after visiting %d commits", upstream.name(), maxDepth));
+                    break;
+                }
+
+                Node node = queue.poll();
+                node.queued = false;
+                queued[node.flags]--;
+
+                // a commit is visited again if a descendant with an earlier commit time is visited after it
+                counted[node.counted]--;
+                counted[node.flags]++;
+                node.counted = node.flags;
+
+                if (node.commit == null) {
+                    graph.parents(node.position, positions);
+
+                    for (int i = 0; i < positions.size(); i++) {
+                        paint(node(graph.id(positions.get(i))), node.flags);
+                    }
+                } else {
+                    for (RevCommit parent : node.commit.getParents()) {
+                        paint(node(parent.copy()), node.flags);
+                    }
+                }
+            }
+
+            return new Divergence(
+                queued[LOCAL] == 0 ? counted[LOCAL] : null,
+                queued[UPSTREAM] == 0 ? counted[UPSTREAM] : null
+            );
+        }
+
+        private void paint(Node node, int flags) {
+            int painted = node.flags | flags;
+
+            if (painted == node.flags) {
+                return;
+            }
+
+            if (node.queued) {
+                queued[node.flags]--;
+            } else {
+                node.queued = true;
+                queue.add(node);
+            }
+
+            node.flags = painted;
+            queued[painted]++;
+        }
+
+        private Node node(ObjectId id) throws IOException {
+            Node node = nodes.get(id);
+
+            if (node != null) {
+                return node;
+            }
+
+            int position = graph == null ? -1 : graph.find(id);
+
+            if (position >= 0) {
+                node = new Node(null, position, graph.generation(position), graph.commitTime(position));
+            } else {
+                // commits outside of the graph are newer than every commit in it
+                RevCommit commit = walk.parseCommit(id);
+                node = new Node(commit, -1, Integer.MAX_VALUE, commit.getCommitTime());
+            }
+
+            nodes.put(id, node);
+            return node;
+        }
+
+    }
+
+    private static class Node {
+
+        /**
+         * The parsed commit, or null if the commit is in the commit-graph
+         */
+        private final RevCommit commit;
+
+        private final int position;
+
+        private final int generation;
+
+        private final long time;
+
+        private int flags;
+
+        private int counted;
+
+        private boolean queued;
+
+        private Node(RevCommit commit, int position, int generation, long time) {
+            this.commit = commit;
+            this.position = position;
+            this.generation = generation;
+            this.time = time;
+        }
+
+    }
+
+    @Value
+    static class TagDistance {
+
+        private final String tag;
+
+        private final ObjectId commit;
+
+        private final long distance;
+
+    }
+
+}
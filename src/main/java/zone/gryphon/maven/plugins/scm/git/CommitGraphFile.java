@@ -0,0 +1,389 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.IntList;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-only view of the <a href="https://git-scm.com/docs/commit-graph">commit-graph</a> written by
+ * {@code git gc} or {@code git commit-graph write}, which stores the parents of every commit it contains as positions
+ * in a table, so that history can be walked without inflating and parsing commit objects.
+ * <br><br>
+ * Both a single {@code objects/info/commit-graph} file and split commit-graph chains are supported.
+ * The files are read into the heap (see {@link WindowCacheSettings} for why they aren't mapped), and commits are
+ * looked up by binary searching the sorted object id table of each layer. Each layer is shared by every module in the
+ * build, and read again only if its file changes.
+ * <br><br>
+ * The graph only contains commits which existed when it was written, so callers must be prepared for newer commits
+ * to be missing. Every ancestor of a commit in the graph is also in the graph.
+ */
+class CommitGraphFile {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int SIGNATURE = 0x43475048; // "CGPH"
+
+    private static final int CHUNK_OID_FANOUT = 0x4f494446; // "OIDF"
+
+    private static final int CHUNK_OID_LOOKUP = 0x4f49444c; // "OIDL"
+
+    private static final int CHUNK_COMMIT_DATA = 0x43444154; // "CDAT"
+
+    private static final int CHUNK_EXTRA_EDGES = 0x45444745; // "EDGE"
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int CHUNK_LOOKUP_ENTRY_SIZE = 12;
+
+    private static final int COMMIT_DATA_SIZE = Constants.OBJECT_ID_LENGTH + 16;
+
+    private static final int NO_PARENT = 0x70000000;
+
+    private static final int EXTRA_EDGES_NEEDED = 0x80000000;
+
+    private static final int LAST_EDGE = 0x80000000;
+
+    private static final SignatureCache<Layer> CACHE = SignatureCache.create();
+
+    /**
+     * Load the commit-graph for an object directory
+     *
+     * @param objectsDirectory The {@code objects} directory of the repository
+     * @param log              Logger
+     * @return The commit-graph, or null if the repository doesn't have one, or it can't be read
+     */
+    static CommitGraphFile load(@NonNull File objectsDirectory, @NonNull Log log) {
+        File info = new File(objectsDirectory, "info");
+        File chain = new File(info, "commit-graphs/commit-graph-chain");
+
+        List<File> files = new ArrayList<>();
+
+        try {
+            if (chain.isFile()) {
+                for (String line : Files.readAllLines(chain.toPath(), UTF_8)) {
+                    if (!line.trim().isEmpty()) {
+                        files.add(new File(chain.getParentFile(), String.format("graph-%s.graph", line.trim())));
+                    }
+                }
+            } else if (new File(info, "commit-graph").isFile()) {
+                files.add(new File(info, "commit-graph"));
+            } else {
+                return null;
+            }
+
+            List<Layer> layers = new ArrayList<>(files.size());
+            int base = 0;
+
+            for (File file : files) {
+                Layer layer = Layer.load(file).at(base);
+                layers.add(layer);
+                base += layer.count;
+            }
+
+            log.debug(String.format("Using commit-graph with %d commits in %d layer(s)", base, layers.size()));
+            return new CommitGraphFile(Collections.unmodifiableList(layers), base);
+        } catch (IOException | RuntimeException e) {
+            log.debug(String.format("Failed to read commit-graph in %s, commits will be parsed individually: %s", info, e.getMessage()));
+            return null;
+        }
+    }
+
+    private final List<Layer> layers;
+
+    private final int size;
+
+    /**
+     * Scratch buffer for object id comparisons
+     */
+    private final int[] words = new int[Constants.OBJECT_ID_LENGTH / 4];
+
+    private CommitGraphFile(List<Layer> layers, int size) {
+        this.layers = layers;
+        this.size = size;
+    }
+
+    /**
+     * @return The number of commits in the graph
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param id A commit id
+     * @return The position of the commit in the graph, or -1 if the graph doesn't contain it
+     */
+    int find(AnyObjectId id) {
+        for (Layer layer : layers) {
+            int position = layer.find(id, words);
+
+            if (position >= 0) {
+                return layer.base + position;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param position The position of a commit in the graph
+     * @return The id of the commit
+     */
+    ObjectId id(int position) {
+        Layer layer = layer(position);
+        int offset = layer.oidLookup + (position - layer.base) * Constants.OBJECT_ID_LENGTH;
+
+        for (int i = 0; i < words.length; i++) {
+            words[i] = layer.buffer.getInt(offset + i * 4);
+        }
+
+        return ObjectId.fromRaw(words);
+    }
+
+    /**
+     * @param position The position of a commit in the graph
+     * @param out      List to add the positions of the commit's parents to, which is cleared first
+     */
+    void parents(int position, IntList out) {
+        Layer layer = layer(position);
+        int offset = layer.commitData + (position - layer.base) * COMMIT_DATA_SIZE + Constants.OBJECT_ID_LENGTH;
+
+        int first = layer.buffer.getInt(offset);
+        int second = layer.buffer.getInt(offset + 4);
+
+        out.clear();
+
+        if (first == NO_PARENT) {
+            return;
+        }
+
+        out.add(first);
+
+        if (second == NO_PARENT) {
+            return;
+        }
+
+        if ((second & EXTRA_EDGES_NEEDED) == 0) {
+            out.add(second);
+            return;
+        }
+
+        if (layer.extraEdges < 0) {
+            throw new IllegalStateException("commit-graph references extra edges, but has no extra edge chunk");
+        }
+
+        int edge = layer.extraEdges + (second & ~EXTRA_EDGES_NEEDED) * 4;
+        int value;
+
+        do {
+            value = layer.buffer.getInt(edge);
+            out.add(value & ~LAST_EDGE);
+            edge += 4;
+        } while ((value & LAST_EDGE) == 0);
+    }
+
+    /**
+     * @param position The position of a commit in the graph
+     * @return The generation number (topological level) of the commit, which is greater than the generation number of
+     * each of its parents, or 0 if the graph was written without generation numbers
+     */
+    int generation(int position) {
+        Layer layer = layer(position);
+        int offset = layer.commitData + (position - layer.base) * COMMIT_DATA_SIZE + Constants.OBJECT_ID_LENGTH + 8;
+        return layer.buffer.getInt(offset) >>> 2;
+    }
+
+    /**
+     * @param position The position of a commit in the graph
+     * @return The commit time of the commit, in seconds since the epoch
+     */
+    long commitTime(int position) {
+        Layer layer = layer(position);
+        int offset = layer.commitData + (position - layer.base) * COMMIT_DATA_SIZE + Constants.OBJECT_ID_LENGTH + 8;
+        return ((layer.buffer.getInt(offset) & 0x3L) << 32) | (layer.buffer.getInt(offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private Layer layer(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(String.format("commit-graph position %d out of range [0, %d)", position, size));
+        }
+
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            Layer layer = layers.get(i);
+
+            if (position >= layer.base) {
+                return layer;
+            }
+        }
+
+        throw new IllegalStateException("unreachable");
+    }
+
+    /**
+     * A single commit-graph file. Positions in a layer are offset by the number of commits in all preceding layers.
+     */
+    private static class Layer {
+
+        /**
+         * @return The layer at position 0, re-using the layer read by a previous call if the file hasn't changed
+         */
+        private static Layer load(File file) throws IOException {
+            File key = file.getAbsoluteFile();
+            long time = System.currentTimeMillis();
+            List<FileSignature> signatures = Collections.singletonList(FileSignature.of(key));
+
+            Layer layer = CACHE.get(key, signatures);
+
+            if (layer == null) {
+                layer = read(key);
+                CACHE.put(key, signatures, time, layer);
+            }
+
+            return layer;
+        }
+
+        private static Layer read(File file) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != SIGNATURE) {
+                throw new IOException(String.format("%s is not a commit-graph", file));
+            }
+
+            int version = buffer.get(4);
+            int hashVersion = buffer.get(5);
+
+            if (version != 1 || hashVersion != 1) {
+                throw new IOException(String.format("Unsupported commit-graph version %d (hash version %d) in %s", version, hashVersion, file));
+            }
+
+            int chunks = buffer.get(6) & 0xFF;
+
+            int fanout = -1;
+            int oidLookup = -1;
+            int commitData = -1;
+            int extraEdges = -1;
+
+            for (int i = 0; i < chunks; i++) {
+                int entry = HEADER_SIZE + i * CHUNK_LOOKUP_ENTRY_SIZE;
+                int id = buffer.getInt(entry);
+                long offset = buffer.getLong(entry + 4);
+
+                if (offset < 0 || offset >= buffer.limit()) {
+                    throw new IOException(String.format("Invalid chunk offset %d in %s", offset, file));
+                }
+
+                if (id == CHUNK_OID_FANOUT) {
+                    fanout = (int) offset;
+                } else if (id == CHUNK_OID_LOOKUP) {
+                    oidLookup = (int) offset;
+                } else if (id == CHUNK_COMMIT_DATA) {
+                    commitData = (int) offset;
+                } else if (id == CHUNK_EXTRA_EDGES) {
+                    extraEdges = (int) offset;
+                }
+            }
+
+            if (fanout < 0 || oidLookup < 0 || commitData < 0) {
+                throw new IOException(String.format("Missing required chunk in %s", file));
+            }
+
+            int count = buffer.getInt(fanout + 255 * 4);
+
+            if (count < 0 || oidLookup + (long) count * Constants.OBJECT_ID_LENGTH > buffer.limit()
+                || commitData + (long) count * COMMIT_DATA_SIZE > buffer.limit()) {
+                throw new IOException(String.format("Truncated commit-graph %s", file));
+            }
+
+            return new Layer(buffer, 0, count, fanout, oidLookup, commitData, extraEdges);
+        }
+
+        private final ByteBuffer buffer;
+
+        private final int base;
+
+        private final int count;
+
+        private final int fanout;
+
+        private final int oidLookup;
+
+        private final int commitData;
+
+        private final int extraEdges;
+
+        private Layer(ByteBuffer buffer, int base, int count, int fanout, int oidLookup, int commitData, int extraEdges) {
+            this.buffer = buffer;
+            this.base = base;
+            this.count = count;
+            this.fanout = fanout;
+            this.oidLookup = oidLookup;
+            this.commitData = commitData;
+            this.extraEdges = extraEdges;
+        }
+
+        /**
+         * @param base The number of commits in all preceding layers
+         * @return This layer, at the given position in the chain
+         */
+        private Layer at(int base) {
+            return base == this.base ? this : new Layer(buffer, base, count, fanout, oidLookup, commitData, extraEdges);
+        }
+
+        private int find(AnyObjectId id, int[] words) {
+            int firstByte = id.getFirstByte();
+
+            int low = firstByte == 0 ? 0 : buffer.getInt(fanout + (firstByte - 1) * 4);
+            int high = buffer.getInt(fanout + firstByte * 4) - 1;
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int offset = oidLookup + middle * Constants.OBJECT_ID_LENGTH;
+
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = buffer.getInt(offset + i * 4);
+                }
+
+                int comparison = id.compareTo(words, 0);
+
+                if (comparison > 0) {
+                    low = middle + 1;
+                } else if (comparison < 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+
+            return -1;
+        }
+
+    }
+
+}
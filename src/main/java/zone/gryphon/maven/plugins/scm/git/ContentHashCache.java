@@ -0,0 +1,336 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import lombok.Value;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Persistent cache of the object ids computed for working tree files, keyed by the path, size, modification time
+ * and inode of the file, and by the conversion (clean filter and line ending conversion) applied to its content
+ * before hashing.
+ * <br><br>
+ * The index only records the stat information of a file as of the last time it was staged, so a file which has been
+ * touched (or re-written by a checkout or CI cache restore) must be re-hashed by every status computation even when
+ * its content is unchanged. This cache remembers those hashes between builds.
+ * <br><br>
+ * The cache is stored as a sorted table which is read into the heap (see {@link WindowCacheSettings} for why it
+ * isn't mapped) and binary searched, so opening it doesn't require parsing every entry.
+ * <br><br>
+ * The layout (all values big-endian) is:
+ * <pre>
+ * int     magic
+ * int     version
+ * int     entry count
+ * int[]   offset of each entry, in path order
+ * entry[] entries, each consisting of:
+ *     short  length of the UTF-8 encoded path
+ *     byte[] UTF-8 encoded path
+ *     long   file size
+ *     long   file modification time
+ *     long   file inode (0 if unknown)
+ *     byte[] SHA-1 of the conversion applied to the content
+ *     byte[] object id
+ * </pre>
+ * Only entries which were used or added during the current build are retained when the cache is saved,
+ * so files which have since been committed or deleted are pruned automatically.
+ */
+public class ContentHashCache {
+
+    private static final String CACHE_PATH = "scm-metadata-maven-plugin/content-hash-cache";
+
+    private static final int MAGIC = 0x53434843; // "SCHC"
+
+    private static final int VERSION = 3;
+
+    private static final int HEADER_SIZE = 12;
+
+    private static final int STAT_SIZE = 24;
+
+    private static final int MAX_PATH_LENGTH = 0xFFFF;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Loads the cache stored in the given git directory.
+     * An empty cache is returned if the cache doesn't exist or can't be read.
+     *
+     * @param gitDir The git directory
+     * @param log    Logger
+     * @return The cache
+     */
+    public static ContentHashCache load(@NonNull File gitDir, @NonNull Log log) {
+        File file = new File(gitDir, CACHE_PATH);
+
+        if (!file.isFile()) {
+            return new ContentHashCache(file, null, 0);
+        }
+
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                log.debug(String.format("Ignoring content hash cache with unrecognized format: %s", file));
+                return new ContentHashCache(file, null, 0);
+            }
+
+            int count = buffer.getInt(8);
+
+            if (count < 0 || HEADER_SIZE + (long) count * 4 > buffer.limit()) {
+                log.debug(String.format("Ignoring truncated content hash cache: %s", file));
+                return new ContentHashCache(file, null, 0);
+            }
+
+            return new ContentHashCache(file, buffer, count);
+        } catch (IOException e) {
+            log.debug(String.format("Failed to read content hash cache %s: %s", file, e.getMessage()));
+            return new ContentHashCache(file, null, 0);
+        }
+    }
+
+    private final File file;
+
+    private final ByteBuffer buffer;
+
+    private final int count;
+
+    /**
+     * Entries which were either found or added during this build, and which will be written by {@link #save(Log)}
+     */
+    private final Map<String, Entry> retained = new TreeMap<>();
+
+    private boolean modified;
+
+    private ContentHashCache(File file, ByteBuffer buffer, int count) {
+        this.file = file;
+        this.buffer = buffer;
+        this.count = count;
+    }
+
+    /**
+     * Look up the object id previously computed for a file
+     *
+     * @param path         The path of the file, relative to the root of the working tree
+     * @param length       The size of the file
+     * @param lastModified The modification time of the file
+     * @param inode        The inode of the file
+     * @param conversion   SHA-1 of the conversion applied to the content of the file before hashing
+     * @return The cached object id, or null if there's no entry for the file with matching stat information
+     * and conversion
+     */
+    public ObjectId lookup(String path, long length, long lastModified, long inode, @NonNull ObjectId conversion) {
+        Entry entry = retained.get(path);
+
+        if (entry == null) {
+            entry = find(path);
+        }
+
+        if (entry == null || entry.getLength() != length || entry.getLastModified() != lastModified
+            || entry.getInode() != inode || !entry.getConversion().equals(conversion)) {
+            return null;
+        }
+
+        retained.put(path, entry);
+        return entry.getId();
+    }
+
+    /**
+     * Record the object id computed for a file
+     *
+     * @param path         The path of the file, relative to the root of the working tree
+     * @param length       The size of the file
+     * @param lastModified The modification time of the file
+     * @param inode        The inode of the file
+     * @param conversion   SHA-1 of the conversion applied to the content of the file before hashing
+     * @param id           The object id of the file's content
+     */
+    public void record(String path, long length, long lastModified, long inode, @NonNull ObjectId conversion, @NonNull ObjectId id) {
+        if (path.getBytes(UTF_8).length > MAX_PATH_LENGTH) {
+            return;
+        }
+
+        retained.put(path, new Entry(path, length, lastModified, inode, conversion.copy(), id.copy()));
+        modified = true;
+    }
+
+    /**
+     * Write the cache back to disk, if it changed.
+     * Failures are logged as warnings and otherwise ignored, since the cache is purely an optimization.
+     *
+     * @param log Logger
+     */
+    public void save(@NonNull Log log) {
+        if (!modified && retained.size() == count) {
+            return;
+        }
+
+        File tmp = null;
+
+        try {
+            File parent = file.getParentFile();
+
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException(String.format("Failed to create directory %s", parent));
+            }
+
+            tmp = File.createTempFile(file.getName(), ".tmp", parent);
+
+            write(tmp);
+
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug(String.format("Wrote %d entries to content hash cache %s", retained.size(), file));
+        } catch (IOException e) {
+            // every subsequent build would re-hash the same files, so this is worth surfacing
+            log.warn(String.format("Failed to write content hash cache %s: %s", file, e.getMessage()));
+
+            if (tmp != null && tmp.exists() && !tmp.delete()) {
+                log.debug(String.format("Failed to delete %s", tmp));
+            }
+        }
+    }
+
+    private void write(File destination) throws IOException {
+        byte[][] paths = new byte[retained.size()][];
+
+        int index = 0;
+        for (String path : retained.keySet()) {
+            paths[index++] = path.getBytes(UTF_8);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(destination)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(paths.length);
+
+            int offset = HEADER_SIZE + paths.length * 4;
+            for (byte[] path : paths) {
+                out.writeInt(offset);
+                offset += 2 + path.length + STAT_SIZE + 2 * Constants.OBJECT_ID_LENGTH;
+            }
+
+            byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+
+            index = 0;
+            for (Entry entry : retained.values()) {
+                byte[] path = paths[index++];
+
+                out.writeShort(path.length);
+                out.write(path);
+                out.writeLong(entry.getLength());
+                out.writeLong(entry.getLastModified());
+                out.writeLong(entry.getInode());
+
+                entry.getConversion().copyRawTo(id, 0);
+                out.write(id);
+
+                entry.getId().copyRawTo(id, 0);
+                out.write(id);
+            }
+        }
+    }
+
+    private Entry find(String path) {
+        if (buffer == null) {
+            return null;
+        }
+
+        try {
+            int low = 0;
+            int high = count - 1;
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int offset = buffer.getInt(HEADER_SIZE + middle * 4);
+                String candidate = readPath(offset);
+                int comparison = candidate.compareTo(path);
+
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return readEntry(offset, candidate);
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException | BufferUnderflowException e) {
+            // corrupt cache, treat as a miss
+        }
+
+        return null;
+    }
+
+    private String readPath(int offset) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 2);
+        view.get(bytes);
+
+        return new String(bytes, UTF_8);
+    }
+
+    private Entry readEntry(int offset, String path) {
+        int position = offset + 2 + (buffer.getShort(offset) & 0xFFFF);
+
+        long length = buffer.getLong(position);
+        long lastModified = buffer.getLong(position + 8);
+        long inode = buffer.getLong(position + 16);
+
+        byte[] conversion = new byte[Constants.OBJECT_ID_LENGTH];
+        byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + STAT_SIZE);
+        view.get(conversion);
+        view.get(id);
+
+        return new Entry(path, length, lastModified, inode, ObjectId.fromRaw(conversion), ObjectId.fromRaw(id));
+    }
+
+    @Value
+    private static class Entry {
+
+        private final String path;
+
+        private final long length;
+
+        private final long lastModified;
+
+        private final long inode;
+
+        private final ObjectId conversion;
+
+        private final ObjectId id;
+
+    }
+
+}
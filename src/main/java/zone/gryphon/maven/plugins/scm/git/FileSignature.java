@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The modification time, size and file key (i.e. inode) of a file, used to detect whether data derived from the file
+ * is still valid.
+ * <br><br>
+ * Git replaces files in the git directory by renaming a lock file over them, so the file key changes with every
+ * update, even if the size is unchanged (as for loose refs) and the update happened within the file system's
+ * timestamp granularity. Where file keys aren't available (e.g. on Windows), a signature whose modification time is
+ * too recent to rule out such an update is racy (see {@link #isRacy(List, long)}), and mustn't be cached.
+ */
+@Value
+class FileSignature {
+
+    /**
+     * Files modified less than this many milliseconds before their signature was taken may be modified again without
+     * changing their modification time
+     */
+    private static final long RACY_INTERVAL_MILLIS = 3000;
+
+    /**
+     * @param file The file
+     * @return The current signature of the file
+     * @throws IOException If the file exists but can't be read
+     */
+    static FileSignature of(@NonNull File file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+
+            if (!attributes.isRegularFile()) {
+                return new FileSignature(file, -1, -1, null);
+            }
+
+            return new FileSignature(file, attributes.lastModifiedTime().toMillis(), attributes.size(), attributes.fileKey());
+        } catch (NoSuchFileException e) {
+            return new FileSignature(file, -1, -1, null);
+        }
+    }
+
+    /**
+     * @param signatures The signatures
+     * @param time       The time before the signatures were taken
+     * @return true if a file without a file key was modified so shortly before the signatures were taken, that it may
+     * have been modified again without changing its signature
+     */
+    static boolean isRacy(@NonNull List<FileSignature> signatures, long time) {
+        for (FileSignature signature : signatures) {
+            if (signature.exists() && signature.fileKey == null && signature.lastModified + RACY_INTERVAL_MILLIS >= time) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Adds the signature of every file in a directory and its subdirectories, in a stable order
+     *
+     * @param directory The directory
+     * @param out       The list to add the signatures to
+     * @throws IOException If a file can't be read
+     */
+    static void addAll(@NonNull File directory, @NonNull List<FileSignature> out) throws IOException {
+        File[] children = directory.listFiles();
+
+        if (children == null) {
+            return;
+        }
+
+        List<File> sorted = new ArrayList<>(children.length);
+        Collections.addAll(sorted, children);
+        Collections.sort(sorted);
+
+        for (File child : sorted) {
+            if (child.isDirectory()) {
+                addAll(child, out);
+            } else {
+                out.add(of(child));
+            }
+        }
+    }
+
+    private final File file;
+
+    private final long lastModified;
+
+    /**
+     * The size of the file, or -1 if it doesn't exist
+     */
+    private final long length;
+
+    /**
+     * The key which uniquely identifies the file, or null if it doesn't exist or the file system doesn't provide one
+     *
+     * @see BasicFileAttributes#fileKey()
+     */
+    private final Object fileKey;
+
+    boolean exists() {
+        return length >= 0;
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import zone.gryphon.maven.plugins.scm.util.Util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Implementations which can be used to read metadata from a {@code git} repository
+ */
+public enum GitBackend {
+
+    /**
+     * Read the repository in-process using <a href="https://www.eclipse.org/jgit/">JGit</a>
+     */
+    JGIT,
+
+    /**
+     * Run the locally installed {@code git} executable, falling back to {@link #JGIT} if it isn't available
+     */
+    CLI,
+
+    /**
+     * Read the revision and branch from environment variables set by CI servers, falling back to {@link #JGIT} if
+     * they aren't set
+     */
+    ENVIRONMENT;
+
+    private static final Map<String, GitBackend> names;
+
+    static {
+        Map<String, GitBackend> local = new HashMap<>();
+
+        for (GitBackend value : GitBackend.values()) {
+            local.put(value.name(), value);
+        }
+
+        names = Collections.unmodifiableMap(local);
+    }
+
+    public static GitBackend parse(String input) {
+
+        if (Util.isBlank(input)) {
+            return JGIT;
+        }
+
+        GitBackend value = names.get(input.trim().toUpperCase());
+
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Illegal value \"%s\". Legal values: %s", input, names.keySet()));
+        }
+
+        return value;
+    }
+
+}
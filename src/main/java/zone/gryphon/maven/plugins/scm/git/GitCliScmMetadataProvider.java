@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@code git} metadata provider which runs the locally installed {@code git} executable,
+ * and parses the output of <code>git status --porcelain=v2</code>.
+ * <br><br>
+ * Recent versions of {@code git} can be significantly faster than JGit when calculating the status of large
+ * repositories, since they can take advantage of features such as the untracked cache, fsmonitor and split index.
+ * <br><br>
+ * If the executable can't be run, or fails, this provider returns null so that
+ * {@link GitScmMetadataProvider} is used as a fallback.
+ */
+public class GitCliScmMetadataProvider extends AbstractGitScmMetadataProvider {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final GitOptions options;
+
+    public GitCliScmMetadataProvider(@NonNull GitOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public ScmMetadata generate(File directory, String url, Log log) {
+        File gitDir = findGitDir(directory);
+
+        // neither directory nor any of its parents are a git repo
+        if (gitDir == null) {
+            log.debug(String.format("not a git repository (or any of the parent directories): %s", directory.getPath()));
+            return null;
+        }
+
+        List<String> command = Arrays.asList(options.getExecutable(), "status", "--porcelain=v2", "-z", "--branch", "--untracked-files=normal");
+
+        final Process process;
+
+        try {
+            process = new ProcessBuilder(command).directory(directory).start();
+        } catch (IOException e) {
+            log.debug(String.format("Unable to run \"%s\", falling back to JGit: %s", options.getExecutable(), e.getMessage()));
+            return null;
+        }
+
+        PorcelainStatus status;
+
+        try {
+            status = read(process);
+        } catch (IOException e) {
+            log.warn(String.format("Command %s failed, falling back to JGit: %s", command, e.getMessage()));
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for git", e);
+        } finally {
+            process.destroy();
+        }
+
+        if (status.getRevision() == null) {
+            throw new IllegalStateException(String.format("HEAD does not point to a commit in repository %s", gitDir));
+        }
+
+        logFiles(status.getUncommitted(), "uncommitted", log);
+        logFiles(status.getUntracked(), "untracked", log);
+
+        boolean clean = status.getUncommitted().isEmpty() && status.getUntracked().isEmpty();
+        boolean detached = status.getBranch() == null;
+
+        ScmMetadata.ScmMetadataBuilder builder = ScmMetadata.builder()
+            .branch(detached ? status.getRevision() : status.getBranch())
+            .revision(status.getRevision())
+            .uncommittedChangesPresent(!clean)
+            .remotePathSegments(chunkPath(parsePath(url)));
+
+        if (hasOptionalMetadata(options, detached)) {
+            // optional metadata is read using JGit, so that it's consistent between backends
+            options.getWindowCache().install(gitDir, log);
+
+            try (Repository repo = RepositoryPool.open(gitDir)) {
+                Set<String> changed = new HashSet<>(status.getUncommitted());
+                changed.addAll(status.getUntracked());
+
+                addOptionalMetadata(repo, ObjectId.fromString(status.getRevision()), status.getBranch(), directory, changed, options, builder, log);
+            } catch (IOException e) {
+                throw new RuntimeException(String.format("Failed to read repository %s", gitDir), e);
+            }
+        }
+
+        return builder.build();
+    }
+
+    private PorcelainStatus read(Process process) throws IOException, InterruptedException {
+        process.getOutputStream().close();
+
+        StreamDrainer stderr = new StreamDrainer(process.getErrorStream());
+        stderr.start();
+
+        PorcelainStatus status;
+
+        try (InputStream in = new BufferedInputStream(process.getInputStream())) {
+            status = PorcelainStatus.parse(in);
+        } catch (IOException e) {
+            // make sure the real cause is reported if git exited with an error
+            if (process.waitFor() != 0) {
+                stderr.join();
+                throw new IOException(String.format("exit code %d: %s", process.exitValue(), stderr.output()), e);
+            }
+
+            throw e;
+        }
+
+        int exitCode = process.waitFor();
+        stderr.join();
+
+        if (exitCode != 0) {
+            throw new IOException(String.format("exit code %d: %s", exitCode, stderr.output()));
+        }
+
+        return status;
+    }
+
+    /**
+     * Reads a stream on a background thread, so that a process can't block while writing to it
+     */
+    private static class StreamDrainer extends Thread {
+
+        private final InputStream in;
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private StreamDrainer(InputStream in) {
+            this.in = in;
+            setDaemon(true);
+            setName("git-stderr");
+        }
+
+        @Override
+        public void run() {
+            byte[] buffer = new byte[1024];
+
+            try (InputStream stream = in) {
+                int read;
+                while ((read = stream.read(buffer)) >= 0) {
+                    synchronized (out) {
+                        out.write(buffer, 0, read);
+                    }
+                }
+            } catch (IOException e) {
+                // process exited, nothing else to read
+            }
+        }
+
+        private String output() {
+            synchronized (out) {
+                return new String(out.toByteArray(), UTF_8).trim();
+            }
+        }
+    }
+
+}
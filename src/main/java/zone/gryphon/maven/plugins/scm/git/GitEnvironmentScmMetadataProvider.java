@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
+import zone.gryphon.maven.plugins.scm.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code git} metadata provider which reads the revision and branch from the environment variables set by CI servers
+ * (see {@link GitOptions#getEnvironmentRevisionVariables()} and {@link GitOptions#getEnvironmentBranchVariables()}).
+ * <br><br>
+ * CI servers usually check out a detached {@code HEAD}, so the environment is the only source of the branch name.
+ * The repository is only opened to calculate the status of the working tree, which can be skipped with
+ * {@link GitOptions#isEnvironmentAssumeClean()}, and any optional metadata.
+ * <br><br>
+ * If the revision isn't set, or doesn't match {@code HEAD} (for example because the variables were set for a different
+ * checkout), this provider returns null so that {@link GitScmMetadataProvider} is used as a fallback.
+ */
+public class GitEnvironmentScmMetadataProvider extends AbstractGitScmMetadataProvider {
+
+    private static final String REMOTE_PREFIX = "origin/";
+
+    private final GitOptions options;
+
+    private final Map<String, String> environment;
+
+    public GitEnvironmentScmMetadataProvider(@NonNull GitOptions options) {
+        this(options, System.getenv());
+    }
+
+    GitEnvironmentScmMetadataProvider(@NonNull GitOptions options, @NonNull Map<String, String> environment) {
+        this.options = options;
+        this.environment = environment;
+    }
+
+    @Override
+    public ScmMetadata generate(File directory, String url, Log log) {
+        File gitDir = findGitDir(directory);
+
+        // neither directory nor any of its parents are a git repo
+        if (gitDir == null) {
+            log.debug(String.format("not a git repository (or any of the parent directories): %s", directory.getPath()));
+            return null;
+        }
+
+        String revision = firstSet(options.getEnvironmentRevisionVariables());
+
+        if (!HeadRef.isId(revision)) {
+            log.debug(String.format("None of %s contain a commit id, falling back to JGit", options.getEnvironmentRevisionVariables()));
+            return null;
+        }
+
+        revision = revision.toLowerCase();
+
+        HeadRef head = HeadRef.resolve(gitDir, log);
+
+        if (head != null && head.getId() != null && !head.getId().equals(revision)) {
+            log.debug(String.format("HEAD is %s, but the environment refers to %s, falling back to JGit", head.getId(), revision));
+            return null;
+        }
+
+        String branch = branch(options.getEnvironmentBranchVariables());
+
+        if (branch == null && head != null && head.getRef() != null) {
+            branch = head.branch();
+        }
+
+        boolean detached = branch == null;
+
+        ScmMetadata.ScmMetadataBuilder builder = ScmMetadata.builder()
+            .branch(detached ? revision : branch)
+            .revision(revision)
+            .remotePathSegments(chunkPath(parsePath(url)));
+
+        if (options.isEnvironmentAssumeClean() && !hasOptionalMetadata(options, detached)) {
+            log.debug("Assuming the working tree is clean, not opening the repository");
+            return builder.uncommittedChangesPresent(false).build();
+        }
+
+        options.getWindowCache().install(gitDir, log);
+
+        try (Repository repo = RepositoryPool.open(gitDir)) {
+            ObjectId id = ObjectId.fromString(revision);
+            Set<String> changed = new HashSet<>();
+
+            if (!options.isEnvironmentAssumeClean()) {
+                Status status = new Status(WorkingTreeStatus.diff(repo, id, options, log));
+
+                logFiles(status.getUncommittedChanges(), "uncommitted", log);
+                logFiles(status.getUntracked(), "untracked", log);
+
+                changed.addAll(status.getUncommittedChanges());
+                changed.addAll(status.getUntracked());
+            }
+
+            builder.uncommittedChangesPresent(!changed.isEmpty());
+
+            addOptionalMetadata(repo, id, detached ? null : branch, directory, Collections.unmodifiableSet(changed), options, builder, log);
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to read repository %s", gitDir), e);
+        }
+
+        return builder.build();
+    }
+
+    private String firstSet(Iterable<String> variables) {
+        for (String variable : variables) {
+            String value = environment.get(variable);
+
+            if (Util.isNonBlank(value)) {
+                return value.trim();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The short name of the first branch set in the given variables, ignoring refs which aren't branches
+     * (such as tags and pull request refs)
+     */
+    private String branch(Iterable<String> variables) {
+        for (String variable : variables) {
+            String value = environment.get(variable);
+
+            if (Util.isBlank(value)) {
+                continue;
+            }
+
+            String branch = value.trim();
+
+            if (branch.startsWith(Constants.R_HEADS)) {
+                return branch.substring(Constants.R_HEADS.length());
+            }
+
+            if (branch.startsWith(Constants.R_REFS)) {
+                continue;
+            }
+
+            // Jenkins sets GIT_BRANCH to the remote tracking branch
+            return branch.startsWith(REMOTE_PREFIX) ? branch.substring(REMOTE_PREFIX.length()) : branch;
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import zone.gryphon.maven.plugins.scm.model.AdditionalProperty;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Configuration for the {@code git} metadata providers
+ */
+@Value
+@Builder(toBuilder = true)
+public class GitOptions {
+
+    /**
+     * Options used when none are explicitly provided
+     */
+    public static final GitOptions DEFAULTS = GitOptions.builder().build();
+
+    /**
+     * If true, object ids computed for stat-dirty files are persisted in a {@link ContentHashCache}
+     */
+    private final boolean contentHashCache;
+
+    /**
+     * If true, stat-dirty files which have a clean filter or line ending conversion configured are considered
+     * modified without hashing their content, unless {@link #contentHashCache} is also enabled
+     */
+    private final boolean statOnlyFilteredFiles;
+
+    /**
+     * The implementation used to access the repository
+     */
+    @NonNull
+    @Builder.Default
+    private final GitBackend backend = GitBackend.JGIT;
+
+    /**
+     * The {@code git} executable used by {@link GitBackend#CLI}
+     */
+    @NonNull
+    @Builder.Default
+    private final String executable = "git";
+
+    /**
+     * If true, the short revision is the shortest unique abbreviation of the revision which is at least
+     * {@link #shortRevisionLength} characters long
+     */
+    private final boolean uniqueShortRevision;
+
+    /**
+     * The minimum length of the short revision, if {@link #uniqueShortRevision} is enabled
+     */
+    @Builder.Default
+    private final int shortRevisionLength = 8;
+
+    /**
+     * Optional metadata to calculate in addition to the default metadata
+     */
+    @NonNull
+    @Builder.Default
+    private final Set<AdditionalProperty> additionalProperties = Collections.emptySet();
+
+    /**
+     * The maximum number of commits visited while searching for the nearest tag
+     */
+    @Builder.Default
+    private final int tagSearchDepth = 10000;
+
+    /**
+     * The maximum number of tags considered when searching for the nearest tag
+     */
+    @Builder.Default
+    private final int tagSearchCandidates = 10;
+
+    /**
+     * If true, the branch is derived from the branches pointing to the current commit when {@code HEAD} is detached
+     */
+    private final boolean recoverDetachedBranch;
+
+    /**
+     * The maximum number of commits visited while searching for a branch containing the current commit, if
+     * {@link #recoverDetachedBranch} is enabled and no branch points to the current commit.
+     * The search is disabled if zero.
+     */
+    private final int detachedBranchSearchDepth;
+
+    /**
+     * The maximum number of commits visited while counting the commits ahead of and behind the upstream branch
+     */
+    @Builder.Default
+    private final int upstreamSearchDepth = 10000;
+
+    /**
+     * Configuration of JGit's cache of pack file data
+     */
+    @NonNull
+    @Builder.Default
+    private final WindowCacheSettings windowCache = WindowCacheSettings.AUTOMATIC;
+
+    /**
+     * The environment variables the revision is read from by {@link GitBackend#ENVIRONMENT}, in order of precedence
+     */
+    @NonNull
+    @Builder.Default
+    private final List<String> environmentRevisionVariables = Arrays.asList(
+        "GIT_COMMIT", // Jenkins
+        "CI_COMMIT_SHA", // GitLab
+        "GITHUB_SHA" // GitHub Actions
+    );
+
+    /**
+     * The environment variables the branch is read from by {@link GitBackend#ENVIRONMENT}, in order of precedence
+     */
+    @NonNull
+    @Builder.Default
+    private final List<String> environmentBranchVariables = Arrays.asList(
+        "GIT_LOCAL_BRANCH", // Jenkins
+        "GIT_BRANCH", // Jenkins
+        "CI_MERGE_REQUEST_SOURCE_BRANCH_NAME", // GitLab
+        "CI_COMMIT_BRANCH", // GitLab
+        "GITHUB_HEAD_REF", // GitHub Actions, pull requests
+        "GITHUB_REF" // GitHub Actions
+    );
+
+    /**
+     * If true, {@link GitBackend#ENVIRONMENT} assumes the working tree is clean instead of calculating its status,
+     * so the repository is only opened if optional metadata is requested
+     */
+    private final boolean environmentAssumeClean;
+
+}
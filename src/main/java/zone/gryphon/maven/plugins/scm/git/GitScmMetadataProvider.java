@@ -17,38 +17,26 @@ package zone.gryphon.maven.plugins.scm.git;
 
 import lombok.NonNull;
 import org.apache.maven.plugin.logging.Log;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
-import zone.gryphon.maven.plugins.scm.provider.AbstractScmMetadataProvider;
-import zone.gryphon.maven.plugins.scm.util.Util;
 
 import java.io.File;
-import java.net.URI;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.regex.Pattern;
 
-import static java.util.regex.Pattern.CASE_INSENSITIVE;
-import static zone.gryphon.maven.plugins.scm.util.KnownScms.GIT;
+public class GitScmMetadataProvider extends AbstractGitScmMetadataProvider {
 
-public class GitScmMetadataProvider extends AbstractScmMetadataProvider {
-
-    /**
-     * Pattern to match URLs with a valid {@code scheme} which is supported by {@code git}, as documented in
-     * <a href="https://www.ietf.org/rfc/rfc2396.txt">section 3.1 of RFC 2396</a>
-     * and <a href="https://git-scm.com/docs/git-clone#_git_urls_a_id_urls_a">GIT URLS</a>
-     */
-    private static final Pattern SCHEME_PATTERN = Pattern.compile("^(?:(?:ssh)|(?:git)|(?:https?)|(?:ftps?)|(?:file)):.+", CASE_INSENSITIVE);
+    private final GitOptions options;
 
     public GitScmMetadataProvider() {
-        super(GIT);
+        this(GitOptions.DEFAULTS);
+    }
+
+    public GitScmMetadataProvider(@NonNull GitOptions options) {
+        this.options = options;
     }
 
     @Override
@@ -60,59 +48,6 @@ public class GitScmMetadataProvider extends AbstractScmMetadataProvider {
         }
     }
 
-    private String stripGitSuffix(String input) {
-        for (String suffix : new String[]{".git", ".git/"}) {
-            if (input.endsWith(suffix)) {
-                return input.substring(0, input.length() - suffix.length());
-            }
-        }
-
-        return input;
-    }
-
-    /**
-     * Parses the path component from a git remote URL
-     */
-    String parsePath(String input) {
-
-        if (Util.isBlank(input)) {
-            return "";
-        }
-
-        final String url = stripGitSuffix(input);
-
-        if (SCHEME_PATTERN.matcher(url).find()) {
-            // if the URL has a scheme, then we can simply use a URI to parse it as-is (hopefully...)
-            return URI.create(url).getPath();
-        }
-
-        int colonIndex = url.indexOf(':');
-
-        // Only two protocols are supported without a scheme, file and ssh.
-        //
-        // scheme-less SSH URLs require a colon, meaning if there isn't one this is a local file path,
-        // and thus the entire URL is the path.
-        if (colonIndex < 0) {
-            return url;
-        }
-
-        int slashIndex = url.indexOf('/');
-
-        // Per the git documentation at https://git-scm.com/docs/git-clone#_git_urls_a_id_urls_a:
-        //
-        //    [the scheme-less ssh] syntax is only recognized if there are no slashes before the first colon.
-        //    This helps differentiate a local path that contains a colon.
-        //    For example the local path foo:bar could be specified as an absolute path
-        //    or ./foo:bar to avoid being misinterpreted as an ssh url.
-        //
-        // meaning if a slash is present, and it's before the colon, it's a file path
-        if (slashIndex >= 0 && slashIndex < colonIndex) {
-            return url;
-        }
-
-        return url.substring(colonIndex + 1);
-    }
-
     private ScmMetadata generateInternal(File directory, String url, Log log) throws Exception {
         File gitDir = findGitDir(directory);
 
@@ -122,17 +57,24 @@ public class GitScmMetadataProvider extends AbstractScmMetadataProvider {
             return null;
         }
 
-        try (
-            Repository repo = new FileRepositoryBuilder()
-                .setGitDir(gitDir)
-                .readEnvironment() // scan environment GIT_* variables
-                .build();
+        options.getWindowCache().install(gitDir, log);
+
+        try (Repository repo = RepositoryPool.open(gitDir)) {
+
+            HeadRef headRef = HeadRef.resolve(repo.getDirectory(), log);
+
+            final ObjectId head;
+            final String branch;
 
-            Git git = new Git(repo);
-        ) {
+            if (headRef != null) {
+                head = headRef.getId() == null ? null : ObjectId.fromString(headRef.getId());
+                branch = headRef.branch();
+            } else {
+                head = repo.resolve(Constants.HEAD);
+                branch = repo.getBranch();
+            }
 
-            ObjectId head = repo.resolve("HEAD");
-            Status status = git.status().call();
+            Status status = new Status(WorkingTreeStatus.diff(repo, head, options, log));
 
             Set<String> uncommitted = status.getUncommittedChanges();
             Set<String> untracked = status.getUntracked();
@@ -141,48 +83,19 @@ public class GitScmMetadataProvider extends AbstractScmMetadataProvider {
             logFiles(uncommitted, "uncommitted", log);
             logFiles(untracked, "untracked", log);
 
-            return ScmMetadata.builder()
-                .branch(repo.getBranch())
+            ScmMetadata.ScmMetadataBuilder builder = ScmMetadata.builder()
+                .branch(branch)
                 .revision(head.getName())
                 .uncommittedChangesPresent(!clean)
-                .remotePathSegments(chunkPath(parsePath(url)))
-                .build();
-        }
-    }
+                .remotePathSegments(chunkPath(parsePath(url)));
 
-    private void logFiles(Collection<String> files, String name, Log log) {
-
-        if (!log.isDebugEnabled()) {
-            return;
-        }
+            Set<String> changed = new HashSet<>(uncommitted);
+            changed.addAll(untracked);
 
-        if (files.isEmpty()) {
-            log.debug(String.format("No %s files", name));
-        } else {
-            List<String> sorted = new ArrayList<>(files);
-            Collections.sort(sorted);
+            addOptionalMetadata(repo, head, branch.equals(head.getName()) ? null : branch, directory, changed, options, builder, log);
 
-            log.debug(String.format("%d %s file%s", files.size(), name, files.size() == 1 ? "" : "s"));
-            for (int i = 0; i < sorted.size(); i++) {
-                log.debug(String.format("  %d) %s", i, sorted.get(i)));
-            }
+            return builder.build();
         }
     }
 
-    private File findGitDir(@NonNull File provided) {
-        File file = provided.getAbsoluteFile();
-
-        while (file.getParent() != null) {
-            File git = new File(file, ".git");
-
-            if (git.exists() && git.isDirectory()) {
-                return git;
-            }
-
-            file = file.getParentFile();
-        }
-
-        return null;
-    }
-
 }
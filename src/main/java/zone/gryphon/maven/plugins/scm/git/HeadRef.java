@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import lombok.Value;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * The resolved value of {@code HEAD}, read directly from the git directory.
+ * <br><br>
+ * JGit parses the whole {@code packed-refs} file the first time any ref which isn't stored as a loose file is read,
+ * which is expensive in repositories with hundreds of thousands of refs.
+ * Here, only the loose files for the refs {@code HEAD} actually points to are read, and {@code packed-refs} is
+ * binary searched using {@link PackedRefs}.
+ * <br><br>
+ * Builds which only need the revision and branch never load JGit's classes,
+ * so this class only uses JGit's compile time constants, which are inlined by the compiler.
+ */
+@Value
+class HeadRef {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String SYMREF_PREFIX = "ref: ";
+
+    private static final String COMMON_DIR_FILE = "commondir";
+
+    private static final int MAX_SYMREF_DEPTH = 5;
+
+    private static final String[] SHORTENED_PREFIXES = {Constants.R_HEADS, Constants.R_TAGS, Constants.R_REMOTES};
+
+    /**
+     * Resolve {@code HEAD} in the given git directory
+     *
+     * @param gitDir The git directory
+     * @param log    Logger
+     * @return The resolved {@code HEAD}, or null if it couldn't be resolved without the help of JGit
+     */
+    static HeadRef resolve(@NonNull File gitDir, @NonNull Log log) {
+        try {
+            File commonDir = commonDir(gitDir);
+            PackedRefs packedRefs = null;
+
+            String name = Constants.HEAD;
+            String branch = null;
+
+            for (int depth = 0; depth < MAX_SYMREF_DEPTH; depth++) {
+                // HEAD is specific to each worktree, all other refs are shared
+                String content = read(new File(Constants.HEAD.equals(name) ? gitDir : commonDir, name));
+
+                if (content == null) {
+                    if (packedRefs == null) {
+                        packedRefs = PackedRefs.open(new File(commonDir, Constants.PACKED_REFS));
+
+                        if (packedRefs == null) {
+                            log.debug("packed-refs is not sorted, resolving HEAD using JGit");
+                            return null;
+                        }
+                    }
+
+                    // unborn branch if the ref doesn't exist
+                    return new HeadRef(packedRefs.find(name), branch);
+                }
+
+                if (content.startsWith(SYMREF_PREFIX)) {
+                    name = content.substring(SYMREF_PREFIX.length()).trim();
+                    branch = name;
+                    continue;
+                }
+
+                if (!isId(content.trim())) {
+                    log.debug(String.format("Unrecognized content in ref %s, resolving HEAD using JGit", name));
+                    return null;
+                }
+
+                return new HeadRef(content.trim().toLowerCase(), branch);
+            }
+
+            log.debug("Too many levels of symbolic refs, resolving HEAD using JGit");
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.debug(String.format("Failed to resolve HEAD, resolving using JGit: %s", e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * @param id A string
+     * @return true if the string is a full object id, in either case (the same as {@code ObjectId.isId})
+     */
+    static boolean isId(String id) {
+        if (id == null || id.length() != Constants.OBJECT_ID_STRING_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < id.length(); i++) {
+            if (Character.digit(id.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param ref The full name of a ref
+     * @return The name without the {@code refs/heads/}, {@code refs/tags/} or {@code refs/remotes/} prefix
+     * (the same as {@code Repository.shortenRefName})
+     */
+    static String shortenRefName(@NonNull String ref) {
+        for (String prefix : SHORTENED_PREFIXES) {
+            if (ref.startsWith(prefix)) {
+                return ref.substring(prefix.length());
+            }
+        }
+
+        return ref;
+    }
+
+    private static File commonDir(File gitDir) throws IOException {
+        String commonDir = read(new File(gitDir, COMMON_DIR_FILE));
+
+        if (commonDir == null) {
+            return gitDir;
+        }
+
+        File file = new File(commonDir.trim());
+        return file.isAbsolute() ? file : new File(gitDir, commonDir.trim());
+    }
+
+    private static String read(File file) throws IOException {
+        try {
+            return new String(Files.readAllBytes(file.toPath()), UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The id of the commit {@code HEAD} points to, in lower case, or null if the current branch doesn't have any
+     * commits yet
+     */
+    private final String id;
+
+    /**
+     * The full name of the branch {@code HEAD} points to, or null if {@code HEAD} is detached
+     */
+    private final String ref;
+
+    /**
+     * @return The short name of the current branch, or the id of the current commit if {@code HEAD} is detached
+     * (the same value as {@code Repository.getBranch()})
+     */
+    String branch() {
+        return ref == null ? id : shortenRefName(ref);
+    }
+
+}
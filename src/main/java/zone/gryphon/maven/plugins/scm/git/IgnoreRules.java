@@ -0,0 +1,208 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.eclipse.jgit.ignore.IgnoreNode;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FS;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates {@code .gitignore} rules for a working tree, using parsed rules which are shared by every instance in
+ * the build (i.e. across reactor modules, and across plugin executions), see {@link SignatureCache}.
+ * <br><br>
+ * JGit parses every {@code .gitignore} file it encounters each time the working tree is walked. Here, each file is
+ * parsed once, and re-parsed only if its modification time or size changes.
+ * The files are checked for changes once per instance, so each status calculation should use a new instance.
+ * <br><br>
+ * Rules are evaluated with the same precedence as {@link org.eclipse.jgit.treewalk.WorkingTreeIterator}:
+ * rules from the deepest {@code .gitignore} file take priority, and the rules for the root of the working tree are
+ * the combination of the root {@code .gitignore}, {@code core.excludesFile} and {@code info/exclude}.
+ */
+class IgnoreRules {
+
+    private static final SignatureCache<IgnoreNode> CACHE = SignatureCache.create();
+
+    /**
+     * Create rules for the working tree of the given repository
+     *
+     * @param repo The repository
+     * @return The rules
+     */
+    static IgnoreRules create(@NonNull Repository repo) {
+        FS fs = repo.getFS();
+        List<File> rootFiles = new ArrayList<>();
+
+        rootFiles.add(new File(repo.getWorkTree(), Constants.DOT_GIT_IGNORE));
+
+        String excludesFile = repo.getConfig().get(CoreConfig.KEY).getExcludesFile();
+
+        if (excludesFile != null) {
+            if (excludesFile.startsWith("~/")) {
+                rootFiles.add(fs.resolve(fs.userHome(), excludesFile.substring(2)));
+            } else {
+                rootFiles.add(fs.resolve(null, excludesFile));
+            }
+        }
+
+        rootFiles.add(fs.resolve(repo.getDirectory(), Constants.INFO_EXCLUDE));
+
+        return new IgnoreRules(repo.getWorkTree(), Collections.unmodifiableList(rootFiles));
+    }
+
+    private final File workTree;
+
+    private final List<File> rootFiles;
+
+    /**
+     * The rules for each directory which has been checked by this instance, or null if the directory has no rules
+     */
+    private final Map<String, IgnoreNode> nodes = new HashMap<>();
+
+    private final Map<String, Boolean> ignoredDirectories = new HashMap<>();
+
+    private IgnoreRules(File workTree, List<File> rootFiles) {
+        this.workTree = workTree;
+        this.rootFiles = rootFiles;
+    }
+
+    /**
+     * @param path      The path, relative to the root of the working tree
+     * @param directory true if the path is a directory
+     * @return true if the path is ignored, either directly or because one of its parent directories is ignored
+     * @throws IOException If an ignore file exists but can't be read
+     */
+    boolean isIgnored(String path, boolean directory) throws IOException {
+        String parent = parentOf(path);
+
+        if (isDirectoryIgnored(parent)) {
+            return true;
+        }
+
+        for (String dir = parent; dir != null; dir = dir.isEmpty() ? null : parentOf(dir)) {
+            IgnoreNode node = node(dir);
+
+            if (node == null) {
+                continue;
+            }
+
+            // matches the paths provided by WorkingTreeIterator, which are prefixed with a '/' below the root
+            Boolean ignored = node.checkIgnored(dir.isEmpty() ? path : path.substring(dir.length()), directory);
+
+            if (ignored != null) {
+                return ignored;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isDirectoryIgnored(String path) throws IOException {
+        if (path.isEmpty()) {
+            return false;
+        }
+
+        Boolean ignored = ignoredDirectories.get(path);
+
+        if (ignored != null) {
+            return ignored;
+        }
+
+        String parent = parentOf(path);
+        ignored = isDirectoryIgnored(parent) ? Boolean.TRUE : null;
+
+        for (String dir = parent; ignored == null && dir != null; dir = dir.isEmpty() ? null : parentOf(dir)) {
+            IgnoreNode node = node(dir);
+
+            String relative = dir.isEmpty() ? path : path.substring(dir.length() + 1);
+
+            for (String p = relative; node != null && ignored == null && !p.isEmpty(); p = parentOf(p)) {
+                ignored = node.checkIgnored(p, true);
+            }
+        }
+
+        if (ignored == null) {
+            ignored = Boolean.FALSE;
+        }
+
+        ignoredDirectories.put(path, ignored);
+        return ignored;
+    }
+
+    private IgnoreNode node(String dir) throws IOException {
+        if (nodes.containsKey(dir)) {
+            return nodes.get(dir);
+        }
+
+        List<File> files = rootFiles;
+
+        if (!dir.isEmpty()) {
+            files = Collections.singletonList(new File(new File(workTree, dir), Constants.DOT_GIT_IGNORE));
+        }
+
+        IgnoreNode node = load(files);
+        nodes.put(dir, node);
+        return node;
+    }
+
+    private static IgnoreNode load(List<File> files) throws IOException {
+        long time = System.currentTimeMillis();
+        List<FileSignature> signatures = new ArrayList<>(files.size());
+
+        for (File file : files) {
+            signatures.add(FileSignature.of(file));
+        }
+
+        File key = files.get(0);
+        IgnoreNode node = CACHE.get(key, signatures);
+
+        if (node == null) {
+            node = new IgnoreNode();
+
+            for (FileSignature signature : signatures) {
+                if (!signature.exists()) {
+                    continue;
+                }
+
+                try (InputStream in = new FileInputStream(signature.getFile())) {
+                    node.parse(in);
+                }
+            }
+
+            CACHE.put(key, signatures, time, node);
+        }
+
+        return node.getRules().isEmpty() ? null : node;
+    }
+
+    private static String parentOf(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash < 0 ? "" : path.substring(0, slash);
+    }
+
+}
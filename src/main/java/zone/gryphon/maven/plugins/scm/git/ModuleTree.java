@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Calculates a fingerprint of the content of a directory in the working tree.
+ * <br><br>
+ * If none of the files in the directory have uncommitted changes, the fingerprint is the id of the directory's tree
+ * object in {@code HEAD}, which is found by reading one tree per level of the path, without reading or hashing any
+ * files. Otherwise it's the {@link WorkingTreeFingerprint} of the changed files in the directory, relative to that
+ * tree id.
+ */
+class ModuleTree {
+
+    /**
+     * Calculate the fingerprint of a directory
+     *
+     * @param repo      The repository
+     * @param head      The current commit
+     * @param directory The directory, which must be inside the working tree
+     * @param changed   Paths of all files with uncommitted changes (including untracked files),
+     *                  relative to the root of the working tree
+     * @return The fingerprint
+     * @throws IOException If the repository or working tree can't be read
+     */
+    static String fingerprint(
+        @NonNull Repository repo,
+        @NonNull AnyObjectId head,
+        @NonNull String directory,
+        @NonNull Collection<String> changed
+    ) throws IOException {
+        ObjectId tree = treeId(repo, head, directory);
+
+        String prefix = directory.isEmpty() ? "" : directory + "/";
+        List<String> paths = new ArrayList<>();
+
+        for (String path : changed) {
+            if (path.startsWith(prefix)) {
+                paths.add(path);
+            }
+        }
+
+        return WorkingTreeFingerprint.of(repo, Constants.TYPE_TREE, tree, paths);
+    }
+
+    /**
+     * @return The id of the tree at the given path in the commit, or the zero id if the commit doesn't contain it
+     */
+    private static ObjectId treeId(Repository repo, AnyObjectId head, String directory) throws IOException {
+        try (RevWalk walk = new RevWalk(repo)) {
+            ObjectId root = walk.parseCommit(head).getTree();
+
+            if (directory.isEmpty()) {
+                return root;
+            }
+
+            try (TreeWalk tree = TreeWalk.forPath(repo, directory, root)) {
+                return tree != null && FileMode.TREE.equals(tree.getRawMode(0)) ? tree.getObjectId(0) : ObjectId.zeroId();
+            }
+        }
+    }
+
+}
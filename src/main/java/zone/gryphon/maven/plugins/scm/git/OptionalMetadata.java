@@ -0,0 +1,284 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.experimental.UtilityClass;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BranchConfig;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import zone.gryphon.maven.plugins.scm.model.AdditionalProperty;
+import zone.gryphon.maven.plugins.scm.model.CommitInfo;
+import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+
+import static zone.gryphon.maven.plugins.scm.model.AdditionalProperty.COMMIT;
+import static zone.gryphon.maven.plugins.scm.model.AdditionalProperty.COMMIT_COUNT;
+import static zone.gryphon.maven.plugins.scm.model.AdditionalProperty.DESCRIBE;
+import static zone.gryphon.maven.plugins.scm.model.AdditionalProperty.MODULE_TREE;
+import static zone.gryphon.maven.plugins.scm.model.AdditionalProperty.TAG;
+import static zone.gryphon.maven.plugins.scm.model.AdditionalProperty.TAG_DISTANCE;
+import static zone.gryphon.maven.plugins.scm.model.AdditionalProperty.UPSTREAM;
+import static zone.gryphon.maven.plugins.scm.model.AdditionalProperty.WORKTREE_FINGERPRINT;
+
+/**
+ * Calculates the optional metadata shared by all {@code git} metadata providers, which requires reading objects
+ * from the repository.
+ * <br><br>
+ * This is kept separate from {@link AbstractGitScmMetadataProvider}, since verifying a class which uses JGit
+ * can load many of JGit's classes, even if none of its methods are ever called.
+ */
+@UtilityClass
+final class OptionalMetadata {
+
+    /**
+     * The shortest abbreviation {@code git} will produce
+     */
+    private static final int MINIMUM_ABBREVIATION_LENGTH = 4;
+
+    /**
+     * Calculate the requested optional metadata, which requires reading objects from the repository
+     *
+     * @param repo      The repository
+     * @param head      The current commit
+     * @param branch    The name of the current branch, or null if {@code HEAD} is detached
+     * @param directory The directory metadata is being calculated for
+     * @param changed   Paths of the files with uncommitted changes (including untracked files),
+     *                  relative to the root of the working tree
+     * @param options   The options specifying which metadata to calculate
+     * @param builder   Builder to add the metadata to
+     * @param log       Logger
+     * @throws IOException If the repository can't be read
+     */
+    static void add(
+        Repository repo,
+        ObjectId head,
+        String branch,
+        File directory,
+        Collection<String> changed,
+        GitOptions options,
+        ScmMetadata.ScmMetadataBuilder builder,
+        Log log
+    ) throws IOException {
+
+        if (branch == null && options.isRecoverDetachedBranch()) {
+            String recovered = recoverBranch(repo, head, options.getDetachedBranchSearchDepth(), log);
+
+            if (recovered != null) {
+                builder.branch(recovered);
+            }
+        }
+
+        if (options.isUniqueShortRevision()) {
+            try (ObjectReader reader = repo.newObjectReader()) {
+                builder.shortRevision(shortRevision(reader, head, options.getShortRevisionLength()));
+            }
+        }
+
+        Set<AdditionalProperty> properties = options.getAdditionalProperties();
+
+        if (properties.contains(COMMIT)) {
+            builder.commit(commitInfo(repo, head));
+        }
+
+        if (properties.contains(WORKTREE_FINGERPRINT)) {
+            builder.worktreeFingerprint(WorkingTreeFingerprint.of(repo, Constants.TYPE_COMMIT, head, changed));
+        }
+
+        if (properties.contains(MODULE_TREE)) {
+            String path = AbstractGitScmMetadataProvider.relativePath(repo.getWorkTree(), directory);
+
+            if (path == null) {
+                log.debug(String.format("%s is not inside the working tree %s", directory, repo.getWorkTree()));
+            } else {
+                builder.moduleTree(ModuleTree.fingerprint(repo, head, path, changed));
+            }
+        }
+
+        boolean count = properties.contains(COMMIT_COUNT);
+        boolean nearestTag = properties.contains(TAG_DISTANCE) || properties.contains(DESCRIBE);
+
+        TagIndex tags = nearestTag || properties.contains(TAG) ? TagIndex.load(repo, log) : null;
+
+        if (properties.contains(TAG)) {
+            builder.tag(tags.tagAt(head));
+        }
+
+        boolean upstream = properties.contains(UPSTREAM) && branch != null;
+
+        if (!count && !nearestTag && !upstream) {
+            return;
+        }
+
+        try (CommitCounter counter = CommitCounter.create(repo, log)) {
+
+            if (count) {
+                builder.commitCount(counter.count(head));
+            }
+
+            if (nearestTag) {
+                addNearestTag(repo, head, counter, tags, options, builder, log);
+            }
+
+            if (upstream) {
+                addUpstream(repo, head, branch, counter, options, builder, log);
+            }
+        }
+    }
+
+    private static void addNearestTag(
+        Repository repo,
+        ObjectId head,
+        CommitCounter counter,
+        TagIndex tags,
+        GitOptions options,
+        ScmMetadata.ScmMetadataBuilder builder,
+        Log log
+    ) throws IOException {
+        CommitCounter.TagDistance nearest = counter.nearestTag(head, tags.tagsByCommit(), options.getTagSearchDepth(), options.getTagSearchCandidates());
+
+        if (nearest == null) {
+            log.debug(String.format("No tags found for %s", head.name()));
+            return;
+        }
+
+        log.debug(String.format("Nearest tag to %s is %s", head.name(), nearest));
+
+        if (options.getAdditionalProperties().contains(TAG_DISTANCE)) {
+            builder.tagDistance(nearest.getDistance());
+        }
+
+        if (options.getAdditionalProperties().contains(DESCRIBE)) {
+            builder.describe(describe(repo, head, nearest));
+        }
+    }
+
+    /**
+     * Counts the commits ahead of and behind the upstream branch configured for the current branch
+     * ({@code branch.<name>.remote} and {@code branch.<name>.merge}), if there is one
+     */
+    private static void addUpstream(
+        Repository repo,
+        ObjectId head,
+        String branch,
+        CommitCounter counter,
+        GitOptions options,
+        ScmMetadata.ScmMetadataBuilder builder,
+        Log log
+    ) throws IOException {
+        String trackingBranch = new BranchConfig(repo.getConfig(), branch).getTrackingBranch();
+        Ref upstream = trackingBranch == null ? null : repo.exactRef(trackingBranch);
+
+        if (upstream == null || upstream.getObjectId() == null) {
+            log.debug(String.format("No upstream found for branch %s", branch));
+            return;
+        }
+
+        int maxDepth = options.getUpstreamSearchDepth();
+        CommitCounter.Divergence divergence = counter.divergence(head, upstream.getObjectId(), maxDepth);
+
+        log.debug(String.format("Divergence of %s from %s is %s", branch, trackingBranch, divergence));
+
+        builder.upstreamAhead(divergence.getAhead() == null ? String.format(">%d", maxDepth) : divergence.getAhead().toString());
+        builder.upstreamBehind(divergence.getBehind() == null ? String.format(">%d", maxDepth) : divergence.getBehind().toString());
+    }
+
+    /**
+     * Reads the metadata of a single commit, without reading its tree or any other objects
+     */
+    private static CommitInfo commitInfo(Repository repo, ObjectId head) throws IOException {
+        try (RevWalk walk = new RevWalk(repo)) {
+            RevCommit commit = walk.parseCommit(head);
+
+            PersonIdent author = commit.getAuthorIdent();
+            PersonIdent committer = commit.getCommitterIdent();
+
+            return CommitInfo.builder()
+                .commitTime(committer.getWhen().getTime())
+                .commitTimeZoneOffset(committer.getTimeZoneOffset())
+                .authorName(author.getName())
+                .authorEmail(author.getEmailAddress())
+                .committerName(committer.getName())
+                .committerEmail(committer.getEmailAddress())
+                .subject(commit.getShortMessage())
+                .build();
+        }
+    }
+
+    /**
+     * Finds the branch pointing to the current commit, or failing that, the nearest branch containing it
+     */
+    private static String recoverBranch(Repository repo, ObjectId head, int searchDepth, Log log) throws IOException {
+        BranchIndex branches = BranchIndex.load(repo, log);
+        String branch = branches.branchAt(head);
+
+        if (branch == null && searchDepth > 0) {
+            branch = branches.branchContaining(repo, head, searchDepth);
+        }
+
+        if (branch == null) {
+            log.debug(String.format("HEAD is detached, and no branch containing %s was found", head.name()));
+        } else {
+            log.debug(String.format("HEAD is detached, using branch %s", branch));
+        }
+
+        return branch;
+    }
+
+    /**
+     * Abbreviates an object id to the shortest prefix which is at least {@code minimumLength} characters long,
+     * and which doesn't match any other object in the repository.
+     * <br><br>
+     * Candidates are found by binary searching the index of each pack, and listing only the single loose object
+     * directory which could contain a match, so the objects in the repository are never enumerated.
+     *
+     * @param reader        Reader for the repository
+     * @param id            The object id
+     * @param minimumLength The minimum length of the abbreviation
+     * @return The abbreviation
+     * @throws IOException If the repository can't be read
+     */
+    static String shortRevision(ObjectReader reader, AnyObjectId id, int minimumLength) throws IOException {
+        int length = Math.max(MINIMUM_ABBREVIATION_LENGTH, Math.min(minimumLength, Constants.OBJECT_ID_STRING_LENGTH));
+        return reader.abbreviate(id, length).name();
+    }
+
+    /**
+     * Formats a description in the same format as {@code git describe}, i.e. the name of the tag if the commit is
+     * tagged, otherwise {@code <tag>-<distance>-g<abbreviated commit id>}
+     */
+    private static String describe(Repository repo, ObjectId head, CommitCounter.TagDistance nearest) throws IOException {
+        if (nearest.getDistance() == 0) {
+            return nearest.getTag();
+        }
+
+        try (ObjectReader reader = repo.newObjectReader()) {
+            return String.format("%s-%d-g%s", nearest.getTag(), nearest.getDistance(), reader.abbreviate(head).name());
+        }
+    }
+
+}
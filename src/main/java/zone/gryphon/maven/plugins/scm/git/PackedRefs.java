@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Looks up individual refs in a {@code packed-refs} file by binary searching it, in the same way as {@code git}
+ * does, rather than parsing the entire file.
+ * <br><br>
+ * Binary searching is only possible if the file declares the {@code sorted} trait in its header, which every version
+ * of {@code git} since 2.16 does (JGit also writes sorted files, but doesn't declare the trait).
+ * The content of each file is shared by every module in the build, and read again only if the file changes.
+ * <br><br>
+ * Like {@link HeadRef}, this class only uses JGit's compile time constants, so it can be used without loading JGit.
+ */
+class PackedRefs {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String HEADER = "# pack-refs with:";
+
+    private static final String SORTED_TRAIT = " sorted ";
+
+    private static final SignatureCache<PackedRefs> CACHE = SignatureCache.create();
+
+    /**
+     * Placeholder for a file which isn't known to be sorted, so it isn't read again until it changes
+     */
+    private static final PackedRefs UNSORTED = new PackedRefs(null, 0);
+
+    /**
+     * Open a {@code packed-refs} file, re-using the content read by a previous call if the file hasn't changed
+     *
+     * @param file The file
+     * @return The refs, or null if the file exists but isn't known to be sorted
+     * @throws IOException If the file can't be read
+     */
+    static PackedRefs open(@NonNull File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        long time = System.currentTimeMillis();
+        List<FileSignature> signatures = Collections.singletonList(FileSignature.of(key));
+
+        PackedRefs refs = CACHE.get(key, signatures);
+
+        if (refs == null) {
+            refs = read(signatures.get(0));
+            CACHE.put(key, signatures, time, refs);
+        }
+
+        return refs == UNSORTED ? null : refs;
+    }
+
+    private static PackedRefs read(FileSignature signature) throws IOException {
+        if (!signature.exists()) {
+            return new PackedRefs(null, 0);
+        }
+
+        // read into the heap rather than mapped, see WindowCacheSettings
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(signature.getFile().toPath()));
+
+        int headerEnd = endOfLine(buffer, 0);
+        String header = new String(bytes(buffer, 0, headerEnd), UTF_8);
+
+        if (!header.startsWith(HEADER) || !(header + " ").contains(SORTED_TRAIT)) {
+            return UNSORTED;
+        }
+
+        return new PackedRefs(buffer, Math.min(headerEnd + 1, buffer.limit()));
+    }
+
+    private final ByteBuffer buffer;
+
+    private final int start;
+
+    private PackedRefs(ByteBuffer buffer, int start) {
+        this.buffer = buffer;
+        this.start = start;
+    }
+
+    /**
+     * @param name The full name of a ref, e.g. {@code refs/heads/master}
+     * @return The id of the object the ref points to, or null if the ref isn't in the file
+     * @throws IOException If the file is malformed
+     */
+    String find(@NonNull String name) throws IOException {
+        if (buffer == null) {
+            return null;
+        }
+
+        byte[] target = name.getBytes(UTF_8);
+
+        int low = start;
+        int high = buffer.limit();
+
+        while (low < high) {
+            int record = startOfLine(buffer, (low + high) >>> 1, low);
+
+            // peeled values belong to the preceding ref
+            if (buffer.get(record) == '^') {
+                record = startOfLine(buffer, record - 1, low);
+            }
+
+            int nameStart = record + Constants.OBJECT_ID_STRING_LENGTH + 1;
+            int nameEnd = endOfLine(buffer, record);
+
+            if (nameStart > nameEnd || buffer.get(nameStart - 1) != ' ') {
+                throw new IOException(String.format("Malformed packed-refs line at offset %d", record));
+            }
+
+            int comparison = compare(buffer, nameStart, nameEnd, target);
+
+            if (comparison == 0) {
+                return new String(bytes(buffer, record, record + Constants.OBJECT_ID_STRING_LENGTH), UTF_8);
+            }
+
+            if (comparison < 0) {
+                low = nameEnd + 1;
+
+                // skip the peeled value of the ref, if any
+                if (low < buffer.limit() && buffer.get(low) == '^') {
+                    low = endOfLine(buffer, low) + 1;
+                }
+            } else {
+                high = record;
+            }
+        }
+
+        return null;
+    }
+
+    private static int compare(ByteBuffer buffer, int start, int end, byte[] target) {
+        int length = end - start;
+
+        for (int i = 0; i < Math.min(length, target.length); i++) {
+            int difference = (buffer.get(start + i) & 0xFF) - (target[i] & 0xFF);
+
+            if (difference != 0) {
+                return difference;
+            }
+        }
+
+        return length - target.length;
+    }
+
+    /**
+     * @return The offset of the first character of the line containing {@code position}, which is at least {@code min}
+     */
+    private static int startOfLine(ByteBuffer buffer, int position, int min) {
+        while (position > min && buffer.get(position - 1) != '\n') {
+            position--;
+        }
+
+        return position;
+    }
+
+    /**
+     * @return The offset of the newline ending the line starting at {@code position}, or the end of the buffer
+     */
+    private static int endOfLine(ByteBuffer buffer, int position) {
+        while (position < buffer.limit() && buffer.get(position) != '\n') {
+            position++;
+        }
+
+        return position;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int start, int end) {
+        byte[] out = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(out);
+        return out;
+    }
+
+}
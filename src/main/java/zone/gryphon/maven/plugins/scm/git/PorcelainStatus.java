@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The parsed output of
+ * <a href="https://git-scm.com/docs/git-status#_porcelain_format_version_2"><code>git status --porcelain=v2 -z --branch</code></a>
+ */
+@Value
+class PorcelainStatus {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String INITIAL = "(initial)";
+
+    private static final String DETACHED = "(detached)";
+
+    /**
+     * Parses porcelain output as it is read from the stream, without buffering the complete output
+     *
+     * @param in The output of {@code git status}
+     * @return The parsed status
+     * @throws IOException If the stream can't be read, or contains malformed output
+     */
+    static PorcelainStatus parse(@NonNull InputStream in) throws IOException {
+        String revision = null;
+        String branch = null;
+        Set<String> uncommitted = new TreeSet<>();
+        Set<String> untracked = new TreeSet<>();
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        String line;
+
+        while ((line = next(in, record)) != null) {
+
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            switch (line.charAt(0)) {
+                case '#':
+                    if (line.startsWith("# branch.oid ")) {
+                        revision = line.substring("# branch.oid ".length());
+                    } else if (line.startsWith("# branch.head ")) {
+                        branch = line.substring("# branch.head ".length());
+                    }
+                    break;
+                case '1':
+                    uncommitted.add(field(line, 8));
+                    break;
+                case '2':
+                    uncommitted.add(field(line, 9));
+
+                    // with -z, the original path of a rename or copy is the following record
+                    String original = next(in, record);
+
+                    if (original == null) {
+                        throw new IOException(String.format("Missing original path for entry \"%s\"", line));
+                    }
+
+                    uncommitted.add(original);
+                    break;
+                case 'u':
+                    uncommitted.add(field(line, 10));
+                    break;
+                case '?':
+                    untracked.add(field(line, 1));
+                    break;
+                case '!':
+                    // ignored files don't affect the status
+                    break;
+                default:
+                    throw new IOException(String.format("Unrecognized status entry \"%s\"", line));
+            }
+        }
+
+        if (revision == null) {
+            throw new IOException("Status output did not include the current revision, \"--branch\" may be unsupported");
+        }
+
+        if (INITIAL.equals(revision)) {
+            revision = null;
+        }
+
+        if (DETACHED.equals(branch)) {
+            branch = null;
+        }
+
+        return new PorcelainStatus(revision, branch, Collections.unmodifiableSet(uncommitted), Collections.unmodifiableSet(untracked));
+    }
+
+    /**
+     * @return the next NUL terminated record, or null at the end of the stream
+     */
+    private static String next(InputStream in, ByteArrayOutputStream record) throws IOException {
+        record.reset();
+
+        int b;
+        while ((b = in.read()) > 0) {
+            record.write(b);
+        }
+
+        if (b < 0 && record.size() == 0) {
+            return null;
+        }
+
+        return new String(record.toByteArray(), UTF_8);
+    }
+
+    /**
+     * @return the remainder of the line after skipping the given number of space separated fields
+     */
+    private static String field(String line, int skip) throws IOException {
+        String[] parts = line.split(" ", skip + 1);
+
+        if (parts.length <= skip) {
+            throw new IOException(String.format("Malformed status entry \"%s\"", line));
+        }
+
+        return parts[skip];
+    }
+
+    /**
+     * The commit {@code HEAD} points to, or null if there are no commits yet
+     */
+    private final String revision;
+
+    /**
+     * The name of the checked out branch, or null if {@code HEAD} is detached
+     */
+    private final String branch;
+
+    /**
+     * Paths with staged or unstaged changes to tracked files
+     */
+    private final Set<String> uncommitted;
+
+    /**
+     * Untracked paths which are not ignored
+     */
+    private final Set<String> untracked;
+
+}
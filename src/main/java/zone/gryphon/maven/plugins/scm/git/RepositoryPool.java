@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repositories shared by every module and plugin execution in a Maven session.
+ * <br><br>
+ * Opening a repository discards everything JGit has read from it before, such as the parsed config, the pack
+ * indexes and the refs, so without the pool each module would read every pack's {@code .idx} file again.
+ * <br><br>
+ * {@link #open(File)} returns the pooled instance after incrementing its use count, so callers close it as usual,
+ * and the repository itself is only closed once the pool has been {@link #end(Object) ended}.
+ * This happens when the session ends if the plugin is loaded as a build extension, or otherwise once every project in
+ * the session has been {@link #release(Object, Object, Collection) released}.
+ * Outside of a session, a new repository is opened each time.
+ */
+@UtilityClass
+public final class RepositoryPool {
+
+    private static final Object LOCK = new Object();
+
+    private static final Map<File, Repository> REPOSITORIES = new HashMap<>();
+
+    /**
+     * The parts of the current session which are done with the pool
+     */
+    private static final Set<Object> RELEASED = new HashSet<>();
+
+    /**
+     * The session repositories are currently pooled for, or null if there isn't one
+     */
+    private static Object session;
+
+    /**
+     * The last session which was ended by releasing every part of it, which repositories aren't pooled for again
+     */
+    private static Reference<Object> released = new WeakReference<>(null);
+
+    /**
+     * Start pooling repositories for a session, closing any repositories pooled for a previous session.
+     * Does nothing if every part of the session has already been {@link #release(Object, Object, Collection) released}.
+     *
+     * @param session The session, compared by identity
+     */
+    public static void begin(@NonNull Object session) {
+        synchronized (LOCK) {
+            if (RepositoryPool.session != session && released.get() != session) {
+                closeAll();
+                RepositoryPool.session = session;
+            }
+        }
+    }
+
+    /**
+     * Stop pooling repositories for a session, closing the pooled repositories once they're no longer in use
+     *
+     * @param session The session, compared by identity
+     */
+    public static void end(@NonNull Object session) {
+        synchronized (LOCK) {
+            if (RepositoryPool.session == session) {
+                closeAll();
+                RepositoryPool.session = null;
+            }
+        }
+    }
+
+    /**
+     * Record that a part of a session (e.g. a project) is done with the pool, ending the pool once every part is.
+     * Without this, the pool of a session which isn't ended explicitly would stay open until the next session begins.
+     *
+     * @param session The session, compared by identity
+     * @param part    The part which is done, compared by equality
+     * @param parts   Every part of the session
+     */
+    public static void release(@NonNull Object session, @NonNull Object part, @NonNull Collection<?> parts) {
+        synchronized (LOCK) {
+            if (RepositoryPool.session != session) {
+                return;
+            }
+
+            RELEASED.add(part);
+
+            if (RELEASED.containsAll(parts)) {
+                end(session);
+                released = new WeakReference<>(session);
+            }
+        }
+    }
+
+    /**
+     * Open a repository, which must be closed by the caller
+     *
+     * @param gitDir The git directory of the repository
+     * @return The repository
+     * @throws IOException If the repository can't be opened
+     */
+    static Repository open(@NonNull File gitDir) throws IOException {
+        synchronized (LOCK) {
+            if (session == null) {
+                return build(gitDir);
+            }
+
+            File key = gitDir.getAbsoluteFile();
+            Repository repo = REPOSITORIES.get(key);
+
+            if (repo == null) {
+                // the pool's own reference, released when the pool ends
+                repo = build(key);
+                REPOSITORIES.put(key, repo);
+            }
+
+            repo.incrementOpen();
+            return repo;
+        }
+    }
+
+    private static Repository build(File gitDir) throws IOException {
+        return new FileRepositoryBuilder()
+            .setGitDir(gitDir)
+            .readEnvironment() // scan environment GIT_* variables
+            .build();
+    }
+
+    private static void closeAll() {
+        SignatureCache.clearAll();
+        RELEASED.clear();
+
+        List<Repository> repositories = new ArrayList<>(REPOSITORIES.values());
+        REPOSITORIES.clear();
+
+        for (Repository repo : repositories) {
+            repo.close();
+        }
+    }
+
+}
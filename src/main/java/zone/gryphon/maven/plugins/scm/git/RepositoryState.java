@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.ToString;
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Signature of the files in a git directory which the metadata is calculated from: {@code HEAD}, the index, the
+ * refs, and the config (which contains the upstream of each branch).
+ * <br><br>
+ * Used to skip recalculating the metadata during incremental builds in an IDE when none of them changed.
+ * Only file attributes (see {@link FileSignature}) are read, so calculating the state is much cheaper than calculating
+ * the metadata.
+ */
+@ToString
+@EqualsAndHashCode(exclude = "racy")
+public final class RepositoryState {
+
+    private static final String INDEX = "index";
+
+    private static final String CONFIG = "config";
+
+    /**
+     * @param directory A directory in the working tree
+     * @return The state of the repository containing the directory, or null if the directory isn't in a git repository
+     * @throws IOException If the git directory can't be read
+     */
+    public static RepositoryState of(@NonNull File directory) throws IOException {
+        File gitDir = AbstractGitScmMetadataProvider.findGitDir(directory);
+
+        if (gitDir == null) {
+            return null;
+        }
+
+        long time = System.currentTimeMillis();
+
+        List<FileSignature> signatures = new ArrayList<>();
+        signatures.add(FileSignature.of(new File(gitDir, Constants.HEAD)));
+        signatures.add(FileSignature.of(new File(gitDir, INDEX)));
+        signatures.add(FileSignature.of(new File(gitDir, CONFIG)));
+        signatures.add(FileSignature.of(new File(gitDir, Constants.PACKED_REFS)));
+        FileSignature.addAll(new File(gitDir, Constants.R_REFS), signatures);
+
+        return new RepositoryState(gitDir, Collections.unmodifiableList(signatures), FileSignature.isRacy(signatures, time));
+    }
+
+    private final File gitDir;
+
+    private final List<FileSignature> signatures;
+
+    private final boolean racy;
+
+    private RepositoryState(File gitDir, List<FileSignature> signatures, boolean racy) {
+        this.gitDir = gitDir;
+        this.signatures = signatures;
+        this.racy = racy;
+    }
+
+    /**
+     * @return true if a file was modified so recently that it may change again without changing the state, in which
+     * case metadata calculated for this state mustn't be re-used. Only possible on file systems which don't provide
+     * file keys (i.e. inodes), such as on Windows.
+     */
+    public boolean isRacy() {
+        return racy;
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.Repository;
+import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of calculated metadata which lives as long as the JVM, for use with long-lived build processes such as the
+ * Maven daemon (mvnd), where back-to-back builds of an unchanged repository would otherwise recalculate the same
+ * metadata every time.
+ * <br><br>
+ * The cached metadata for a repository is discarded when its {@link RepositoryState} changes, i.e. when {@code HEAD},
+ * the index or the refs change, and, if the working tree is watched, when a file in the working tree which isn't
+ * ignored changes (see {@link WorkingTreeWatcher}). If the working tree should be watched but can't be, nothing is
+ * cached.
+ */
+@UtilityClass
+public final class ResidentMetadataCache {
+
+    private static final ConcurrentMap<File, Entry> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Get the metadata for a directory, calculating it only if it isn't cached, or the repository changed since it
+     * was cached
+     *
+     * @param directory        The directory the metadata is for
+     * @param configuration    Description of everything besides the repository the metadata depends on
+     * @param watchWorkingTree If true, changes to files in the working tree invalidate the cache.
+     *                         Otherwise, only changes to files in the git directory do.
+     * @param loader           Calculates the metadata
+     * @param log              Logger
+     * @return The metadata
+     * @throws Exception If the metadata can't be calculated
+     */
+    public static ScmMetadata get(
+        @NonNull File directory,
+        @NonNull String configuration,
+        boolean watchWorkingTree,
+        @NonNull Callable<ScmMetadata> loader,
+        @NonNull Log log) throws Exception {
+
+        File gitDir = AbstractGitScmMetadataProvider.findGitDir(directory);
+
+        if (gitDir == null) {
+            return loader.call();
+        }
+
+        RepositoryState state = RepositoryState.of(directory);
+
+        if (state.isRacy()) {
+            return loader.call();
+        }
+
+        Entry entry = current(gitDir, state, watchWorkingTree, log);
+
+        if (entry == null) {
+            return loader.call();
+        }
+
+        ScmMetadata cached = entry.metadata.get(configuration);
+
+        if (cached != null) {
+            log.debug("Repository is unchanged since the metadata was last calculated in this JVM, re-using it");
+            return cached;
+        }
+
+        ScmMetadata metadata = loader.call();
+
+        if (metadata != null) {
+            entry.metadata.put(configuration, metadata);
+        }
+
+        return metadata;
+    }
+
+    /**
+     * @return The entry for the current state of the repository, or null if the working tree needs to be watched but
+     * can't be
+     */
+    private static synchronized Entry current(File gitDir, RepositoryState state, boolean watchWorkingTree, Log log) throws IOException {
+        Entry entry = CACHE.get(gitDir);
+
+        if (entry != null) {
+            if (entry.state.equals(state) && entry.watchWorkingTree == watchWorkingTree && (entry.watcher == null || !entry.watcher.changed())) {
+                return entry;
+            }
+
+            log.debug(String.format("%s changed since the metadata was last calculated in this JVM", gitDir));
+            CACHE.remove(gitDir);
+
+            if (entry.watcher != null) {
+                entry.watcher.close();
+            }
+        }
+
+        WorkingTreeWatcher watcher = null;
+
+        if (watchWorkingTree) {
+            // the watcher is started before the metadata is calculated, so that changes made meanwhile aren't missed
+            try (Repository repo = RepositoryPool.open(gitDir)) {
+                watcher = WorkingTreeWatcher.start(repo.getWorkTree(), IgnoreRules.create(repo), log);
+            }
+
+            if (watcher == null) {
+                return null;
+            }
+        }
+
+        Entry out = new Entry(state, watchWorkingTree, watcher);
+        CACHE.put(gitDir, out);
+        return out;
+    }
+
+    private static final class Entry {
+
+        private final RepositoryState state;
+
+        private final boolean watchWorkingTree;
+
+        private final WorkingTreeWatcher watcher;
+
+        /**
+         * The metadata, keyed by the configuration it was calculated with
+         */
+        private final ConcurrentMap<String, ScmMetadata> metadata = new ConcurrentHashMap<>();
+
+        private Entry(RepositoryState state, boolean watchWorkingTree, WorkingTreeWatcher watcher) {
+            this.state = state;
+            this.watchWorkingTree = watchWorkingTree;
+            this.watcher = watcher;
+        }
+
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Values derived from files in a repository (e.g. parsed refs or ignore rules), each re-used for as long as the
+ * {@link FileSignature signatures} of the files it was derived from are unchanged.
+ * <br><br>
+ * Every cache is cleared when the {@link RepositoryPool} begins or ends a session, so derived values are shared by
+ * every module and plugin execution in a build, but don't accumulate across builds in a long-lived JVM such as the
+ * Maven daemon.
+ *
+ * @param <V> The type of the cached values
+ */
+final class SignatureCache<V> {
+
+    private static final List<SignatureCache<?>> CACHES = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param <V> The type of the cached values
+     * @return A new cache, cleared along with every other cache
+     */
+    static <V> SignatureCache<V> create() {
+        SignatureCache<V> cache = new SignatureCache<>();
+        CACHES.add(cache);
+        return cache;
+    }
+
+    /**
+     * Discard the values in every cache
+     */
+    static void clearAll() {
+        for (SignatureCache<?> cache : CACHES) {
+            cache.entries.clear();
+        }
+    }
+
+    private final ConcurrentMap<File, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private SignatureCache() {
+    }
+
+    /**
+     * @param key        The key, typically the git directory or the file the value was derived from
+     * @param signatures The current signatures of the files the value is derived from
+     * @return The cached value, or null if there isn't one or the files have changed since it was derived
+     */
+    V get(@NonNull File key, @NonNull List<FileSignature> signatures) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && entry.getSignatures().equals(signatures) ? entry.getValue() : null;
+    }
+
+    /**
+     * Cache a value, unless the files it was derived from may change again without changing their signatures
+     *
+     * @param key        The key, typically the git directory or the file the value was derived from
+     * @param signatures The signatures of the files the value was derived from
+     * @param time       The time before the signatures were taken
+     * @param value      The value
+     */
+    void put(@NonNull File key, @NonNull List<FileSignature> signatures, long time, @NonNull V value) {
+        if (FileSignature.isRacy(signatures, time)) {
+            entries.remove(key);
+        } else {
+            entries.put(key, new Entry<>(signatures, value));
+        }
+    }
+
+    @Value
+    private static class Entry<V> {
+
+        private final List<FileSignature> signatures;
+
+        private final V value;
+
+    }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.errors.ConfigInvalidException;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileBasedConfig;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link TreeFilter} which excludes paths outside of a
+ * <a href="https://git-scm.com/docs/git-sparse-checkout#_internalscone_pattern_set">cone mode</a> sparse checkout,
+ * so that directories outside of the cone aren't walked at all when calculating the status of the repository.
+ * <br><br>
+ * Files outside of the cone have the {@code skip-worktree} bit set, so JGit wouldn't report them regardless;
+ * this filter only avoids the cost of iterating over them. Changes staged outside of the cone (e.g. by
+ * {@code git add --sparse} or {@code git rm --sparse}) still need to be reported, so when calculating the status,
+ * {@link #orStaged(int, int)} is used to only prune the working tree.
+ * <br><br>
+ * Sparse checkouts using non-cone patterns aren't pruned, since arbitrary patterns can't be evaluated per directory.
+ */
+class SparseCheckoutFilter extends TreeFilter {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String SPARSE_CHECKOUT_FILE = "info/sparse-checkout";
+
+    private static final String WORKTREE_CONFIG_FILE = "config.worktree";
+
+    /**
+     * Create a filter for the sparse checkout configured in the given repository
+     *
+     * @param repo The repository
+     * @param log  Logger
+     * @return The filter, or null if the repository isn't a cone mode sparse checkout
+     */
+    static SparseCheckoutFilter load(@NonNull Repository repo, @NonNull Log log) {
+        Config config = readConfig(repo, log);
+
+        if (!config.getBoolean("core", "sparseCheckout", false)) {
+            return null;
+        }
+
+        if (!config.getBoolean("core", "sparseCheckoutCone", false)) {
+            log.debug("Sparse checkout is not in cone mode, all paths will be walked");
+            return null;
+        }
+
+        File file = new File(repo.getDirectory(), SPARSE_CHECKOUT_FILE);
+        List<String> patterns = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                patterns.add(line);
+            }
+        } catch (IOException e) {
+            log.debug(String.format("Failed to read %s, all paths will be walked: %s", file, e.getMessage()));
+            return null;
+        }
+
+        SparseCheckoutFilter filter = parse(patterns);
+
+        if (filter == null) {
+            log.debug(String.format("%s does not contain cone mode patterns, all paths will be walked", file));
+        } else {
+            log.debug(String.format("Restricting status to sparse checkout cone: %s", filter));
+        }
+
+        return filter;
+    }
+
+    /**
+     * {@code git sparse-checkout} writes its settings to the per-worktree configuration file
+     * when {@code extensions.worktreeConfig} is enabled, which JGit doesn't read by default
+     */
+    private static Config readConfig(Repository repo, Log log) {
+        Config config = repo.getConfig();
+
+        if (!config.getBoolean("extensions", "worktreeConfig", false)) {
+            return config;
+        }
+
+        FileBasedConfig worktreeConfig = new FileBasedConfig(config, new File(repo.getDirectory(), WORKTREE_CONFIG_FILE), repo.getFS());
+
+        try {
+            worktreeConfig.load();
+        } catch (IOException | ConfigInvalidException e) {
+            log.debug(String.format("Failed to read %s: %s", worktreeConfig.getFile(), e.getMessage()));
+            return config;
+        }
+
+        return worktreeConfig;
+    }
+
+    /**
+     * Parse cone mode patterns
+     *
+     * @param patterns The lines of the {@code sparse-checkout} file
+     * @return The filter, or null if the patterns are not valid cone mode patterns
+     */
+    static SparseCheckoutFilter parse(@NonNull List<String> patterns) {
+        Set<String> included = new HashSet<>();
+        Set<String> parents = new HashSet<>();
+
+        for (String raw : patterns) {
+            String pattern = raw.trim();
+
+            if (pattern.isEmpty() || pattern.startsWith("#") || pattern.equals("/*") || pattern.equals("!/*/")) {
+                continue;
+            }
+
+            if (pattern.startsWith("!/") && pattern.endsWith("/*/") && pattern.length() > "!//*/".length()) {
+                parents.add(pattern.substring(2, pattern.length() - 3));
+            } else if (pattern.startsWith("/") && pattern.endsWith("/") && pattern.length() > 2 && !pattern.contains("*")) {
+                included.add(pattern.substring(1, pattern.length() - 1));
+            } else {
+                return null;
+            }
+        }
+
+        // directories whose subdirectories are excluded only have their immediate files included
+        Set<String> recursive = new HashSet<>(included);
+        recursive.removeAll(parents);
+
+        parents.add("");
+
+        return new SparseCheckoutFilter(Collections.unmodifiableSet(recursive), Collections.unmodifiableSet(parents));
+    }
+
+    /**
+     * Directories which are completely included
+     */
+    private final Set<String> recursive;
+
+    /**
+     * Directories whose immediate files are included, but not their subdirectories (unless otherwise included)
+     */
+    private final Set<String> parents;
+
+    private SparseCheckoutFilter(Set<String> recursive, Set<String> parents) {
+        this.recursive = recursive;
+        this.parents = parents;
+    }
+
+    @Override
+    public boolean include(TreeWalk walker) {
+        return includes(walker.getPathString(), walker.isSubtree());
+    }
+
+    /**
+     * @param path      The path, relative to the root of the repository
+     * @param directory true if the path is a directory
+     * @return true if the path is inside of the cone, or is a directory containing part of the cone
+     */
+    boolean includes(String path, boolean directory) {
+        if (isWithinRecursive(path)) {
+            return true;
+        }
+
+        if (directory) {
+            return parents.contains(path) || isAncestorOfCone(path);
+        }
+
+        int slash = path.lastIndexOf('/');
+        return parents.contains(slash < 0 ? "" : path.substring(0, slash));
+    }
+
+    private boolean isWithinRecursive(String path) {
+        int index = path.length();
+
+        while (index > 0) {
+            if (recursive.contains(path.substring(0, index))) {
+                return true;
+            }
+
+            index = path.lastIndexOf('/', index - 1);
+        }
+
+        return false;
+    }
+
+    private boolean isAncestorOfCone(String path) {
+        String prefix = path + "/";
+
+        for (String directory : recursive) {
+            if (directory.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean shouldBeRecursive() {
+        return false;
+    }
+
+    @Override
+    public TreeFilter clone() {
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SPARSE_CHECKOUT(recursive=%s, parents=%s)", recursive, parents);
+    }
+
+    /**
+     * @param tree  The position of the tree in the walk
+     * @param index The position of the index in the walk
+     * @return A filter which also includes paths outside of the cone whose entries in the tree and the index differ.
+     * Directories are compared using the index's cached tree ids, so directories outside of the cone are only walked
+     * if something was staged in them since the index was last written by a commit or checkout.
+     */
+    TreeFilter orStaged(int tree, int index) {
+        return new StagedFilter(this, tree, index);
+    }
+
+    private static class StagedFilter extends TreeFilter {
+
+        private final SparseCheckoutFilter cone;
+
+        private final int tree;
+
+        private final int index;
+
+        private StagedFilter(SparseCheckoutFilter cone, int tree, int index) {
+            this.cone = cone;
+            this.tree = tree;
+            this.index = index;
+        }
+
+        @Override
+        public boolean include(TreeWalk walker) {
+            return cone.include(walker) || walker.getRawMode(tree) != walker.getRawMode(index) || !walker.idEqual(tree, index);
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            return false;
+        }
+
+        @Override
+        public TreeFilter clone() {
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s OR STAGED", cone);
+        }
+
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+
+/**
+ * {@link FileTreeIterator} used when calculating the status of the working tree,
+ * which consults a {@link ContentHashCache} before hashing the content of stat-dirty files,
+ * evaluates ignore rules using {@link IgnoreRules},
+ * and which can optionally avoid running clean filters and line ending conversion entirely.
+ */
+class StatusFileTreeIterator extends FileTreeIterator {
+
+    /**
+     * Files modified less than this many milliseconds before the status calculation started aren't added to the
+     * cache, since a subsequent modification within the file system's timestamp granularity would be undetectable.
+     */
+    private static final long RACY_INTERVAL_MILLIS = 3000;
+
+    private final ContentHashCache cache;
+
+    private final boolean statOnlyFilteredFiles;
+
+    private final IgnoreRules ignoreRules;
+
+    private final long startTime;
+
+    /**
+     * The entry for which {@link #id} and {@link #idOffset} were calculated
+     */
+    private Entry idEntry;
+
+    private byte[] id;
+
+    private int idOffset;
+
+    /**
+     * @param repo                  The repository
+     * @param cache                 The cache to use, or null to always hash file contents
+     * @param statOnlyFilteredFiles If true, files which would need to be passed through a clean filter or line ending
+     *                              conversion before hashing are compared using only their stat information
+     * @param ignoreRules           The ignore rules for the working tree, or null to use JGit's own ignore handling
+     */
+    StatusFileTreeIterator(Repository repo, ContentHashCache cache, boolean statOnlyFilteredFiles, IgnoreRules ignoreRules) {
+        super(repo);
+        this.cache = cache;
+        this.statOnlyFilteredFiles = statOnlyFilteredFiles;
+        this.ignoreRules = ignoreRules;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    private StatusFileTreeIterator(StatusFileTreeIterator parent, File directory) {
+        super(parent, directory, parent.fs, parent.fileModeStrategy);
+        this.cache = parent.cache;
+        this.statOnlyFilteredFiles = parent.statOnlyFilteredFiles;
+        this.ignoreRules = parent.ignoreRules;
+        this.startTime = parent.startTime;
+    }
+
+    @Override
+    protected AbstractTreeIterator enterSubtree() {
+        return new StatusFileTreeIterator(this, getEntryFile());
+    }
+
+    @Override
+    public boolean isEntryIgnored() throws IOException {
+        if (ignoreRules == null) {
+            return super.isEntryIgnored();
+        }
+
+        return ignoreRules.isIgnored(getEntryPathString(), FileMode.TREE.equals(getEntryRawMode()));
+    }
+
+    @Override
+    public boolean isModified(DirCacheEntry entry, boolean forceContentCheck, ObjectReader reader) throws IOException {
+        if (!statOnlyFilteredFiles || entry == null || !isFile()) {
+            return super.isModified(entry, forceContentCheck, reader);
+        }
+
+        MetadataDiff diff = compareMetadata(entry);
+
+        // only stat-dirty files need their content hashed, which is the expensive operation for filtered files
+        if ((diff != MetadataDiff.DIFFER_BY_TIMESTAMP && diff != MetadataDiff.SMUDGED) || !isFiltered()) {
+            return super.isModified(entry, forceContentCheck, reader);
+        }
+
+        // with a cache the filter only runs the first time a file's stat information changes, so it's worth running
+        if (cache != null) {
+            return super.isModified(entry, forceContentCheck, reader);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if hashing the current entry would require running a clean filter (e.g. git-lfs),
+     * or converting line endings
+     */
+    private boolean isFiltered() throws IOException {
+        return getCleanFilterCommand() != null || getEolStreamType() != CoreConfig.EolStreamType.DIRECT;
+    }
+
+    @Override
+    public byte[] idBuffer() {
+        calculateId();
+        return id;
+    }
+
+    @Override
+    public int idOffset() {
+        calculateId();
+        return idOffset;
+    }
+
+    // getEntryLastModifiedInstant() replaces getEntryLastModified(), but returns a java.time.Instant,
+    // which isn't available at the Java 7 source level this plugin is built with
+    @SuppressWarnings("deprecation")
+    private void calculateId() {
+        Entry entry = current();
+
+        if (entry == idEntry) {
+            return;
+        }
+
+        ObjectId conversion = cache == null || !isFile() || isCleanAgainstIndex() ? null : conversion();
+
+        if (conversion == null) {
+            id = super.idBuffer();
+            idOffset = super.idOffset();
+            idEntry = entry;
+            return;
+        }
+
+        String path = getEntryPathString();
+        long length = getEntryLength();
+        long lastModified = getEntryLastModified();
+        long inode = inode(getEntryFile());
+
+        ObjectId cached = cache.lookup(path, length, lastModified, inode, conversion);
+
+        if (cached != null && isUsable(cached)) {
+            id = new byte[Constants.OBJECT_ID_LENGTH];
+            idOffset = 0;
+            cached.copyRawTo(id, 0);
+        } else {
+            id = super.idBuffer();
+            idOffset = super.idOffset();
+
+            ObjectId computed = ObjectId.fromRaw(id, idOffset);
+
+            if (!ObjectId.zeroId().equals(computed) && lastModified + RACY_INTERVAL_MILLIS < startTime) {
+                cache.record(path, length, lastModified, inode, conversion, computed);
+            }
+        }
+
+        idEntry = entry;
+    }
+
+    /**
+     * If the id of a file with line ending conversion differs from the index, JGit re-hashes the indexed content
+     * using a buffer which is only allocated once a file has been hashed, so a cached id is only used for such a
+     * file if it matches the index
+     */
+    private boolean isUsable(ObjectId cached) {
+        DirCacheIterator iterator = getDirCacheIterator();
+
+        if (iterator == null || iterator.getDirCacheEntry() == null || cached.equals(iterator.getDirCacheEntry().getObjectId())) {
+            return true;
+        }
+
+        try {
+            return getEolStreamType() == CoreConfig.EolStreamType.DIRECT;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return SHA-1 of the clean filter and line ending conversion applied to the current entry before it's hashed,
+     * which the cached id depends on (so that changes to {@code .gitattributes} or {@code core.autocrlf} aren't
+     * masked by the cache), or null if the attributes can't be read
+     */
+    private ObjectId conversion() {
+        try {
+            String conversion = String.format("%s %s", getEolStreamType(), getCleanFilterCommand());
+            return ObjectId.fromRaw(Constants.newMessageDigest().digest(Constants.encode(conversion)));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean isFile() {
+        return (getEntryRawMode() & FileMode.TYPE_MASK) == FileMode.TYPE_FILE;
+    }
+
+    /**
+     * Mirrors the check in {@link org.eclipse.jgit.treewalk.WorkingTreeIterator#idBuffer()},
+     * which re-uses the id from the index without hashing the file if the file's metadata is unchanged
+     */
+    private boolean isCleanAgainstIndex() {
+        DirCacheIterator iterator = getDirCacheIterator();
+
+        if (iterator == null) {
+            return false;
+        }
+
+        DirCacheEntry entry = iterator.getDirCacheEntry();
+        return entry != null && compareMetadata(entry) == MetadataDiff.EQUAL;
+    }
+
+    private static long inode(File file) {
+        try {
+            Object inode = Files.getAttribute(file.toPath(), "unix:ino", LinkOption.NOFOLLOW_LINKS);
+            return inode instanceof Number ? ((Number) inode).longValue() : 0;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+}
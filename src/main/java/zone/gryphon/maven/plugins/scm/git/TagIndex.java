@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the tags in a repository, keyed by the commit each tag points to after peeling annotated tags.
+ * <br><br>
+ * Peeling a loose annotated tag requires reading the tag object, which is expensive for repositories with many tags,
+ * so indexes are shared by every module and plugin execution in the build (see {@link SignatureCache}).
+ * An index is rebuilt only if {@code packed-refs}, or any of the loose refs under {@code refs/tags}, change.
+ */
+class TagIndex {
+
+    private static final SignatureCache<TagIndex> CACHE = SignatureCache.create();
+
+    private static final String PACKED_REFS = "packed-refs";
+
+    /**
+     * Load the index for the given repository, re-using a previously built index if the tags haven't changed
+     *
+     * @param repo The repository
+     * @param log  Logger
+     * @return The index
+     * @throws IOException If the refs can't be read
+     */
+    static TagIndex load(@NonNull Repository repo, @NonNull Log log) throws IOException {
+        File key = repo.getDirectory().getAbsoluteFile();
+        long time = System.currentTimeMillis();
+        List<FileSignature> signatures = signatures(repo.getDirectory());
+
+        TagIndex cached = CACHE.get(key, signatures);
+
+        if (cached != null) {
+            log.debug(String.format("Re-using index of %d tagged commits", cached.tags.size()));
+            return cached;
+        }
+
+        TagIndex index = new TagIndex(build(repo.getRefDatabase()));
+        CACHE.put(key, signatures, time, index);
+
+        log.debug(String.format("Indexed %d tagged commits", index.tags.size()));
+        return index;
+    }
+
+    private static List<FileSignature> signatures(File gitDir) throws IOException {
+        List<FileSignature> out = new ArrayList<>();
+        out.add(FileSignature.of(new File(gitDir, PACKED_REFS)));
+        FileSignature.addAll(new File(gitDir, Constants.R_TAGS), out);
+        return out;
+    }
+
+    private static Map<ObjectId, String> build(RefDatabase refs) throws IOException {
+        Map<ObjectId, String> out = new HashMap<>();
+
+        for (Ref ref : refs.getRefsByPrefix(Constants.R_TAGS)) {
+            Ref peeled = refs.peel(ref);
+            ObjectId id = peeled.getPeeledObjectId() != null ? peeled.getPeeledObjectId() : peeled.getObjectId();
+
+            if (id == null) {
+                continue;
+            }
+
+            String name = Repository.shortenRefName(ref.getName());
+            String existing = out.get(id);
+
+            if (existing == null || name.compareTo(existing) > 0) {
+                out.put(id, name);
+            }
+        }
+
+        return Collections.unmodifiableMap(out);
+    }
+
+    private final Map<ObjectId, String> tags;
+
+    private TagIndex(Map<ObjectId, String> tags) {
+        this.tags = tags;
+    }
+
+    /**
+     * @param commit A commit id
+     * @return The name of the tag pointing to the commit, or null if the commit isn't tagged.
+     * If multiple tags point to the commit, the lexicographically greatest name is returned.
+     */
+    String tagAt(@NonNull AnyObjectId commit) {
+        return tags.get(commit);
+    }
+
+    /**
+     * @return The name of each tag, keyed by the id of the commit it points to
+     */
+    Map<ObjectId, String> tagsByCommit() {
+        return tags;
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+import java.io.File;
+
+/**
+ * Configuration of JGit's {@link org.eclipse.jgit.internal.storage.file.WindowCache}, which caches the parts of pack
+ * files read while accessing objects.
+ * <br><br>
+ * JGit's defaults (a 10 MB cache of 8 KB windows) are tuned for small repositories, and cause large packs to be read
+ * from disk over and over. Each setting which isn't configured is derived from the total size of the repository's
+ * packs instead.
+ * <br><br>
+ * The cache is shared by every repository in the JVM, and reconfiguring it discards its content, so it's only
+ * reconfigured when the settings change, and derived settings never decrease.
+ * <br><br>
+ * Packs aren't memory-mapped unless configured, since a mapping can't be released before it's garbage collected,
+ * which may be long after the build, and on Windows prevents git from replacing or deleting the file in the meantime.
+ * For the same reason, the other files the plugin reads (such as {@code packed-refs} and the commit-graph) are read
+ * into the heap rather than mapped.
+ */
+@Value
+@Builder(toBuilder = true)
+public class WindowCacheSettings {
+
+    /**
+     * Settings with every value derived from the size of the packs
+     */
+    public static final WindowCacheSettings AUTOMATIC = WindowCacheSettings.builder().build();
+
+    private static final long KB = WindowCacheConfig.KB;
+
+    private static final long MB = WindowCacheConfig.MB;
+
+    private static final long DEFAULT_LIMIT = 10 * MB;
+
+    /**
+     * The largest derived limit, since the cached data is retained for the lifetime of the JVM, which in a build daemon
+     * outlives the build
+     */
+    private static final long MAX_LIMIT = 256 * MB;
+
+    private static final int DEFAULT_WINDOW_SIZE = (int) (8 * KB);
+
+    private static final int LARGE_WINDOW_SIZE = (int) (64 * KB);
+
+    private static final long LARGE_PACKS = 256 * MB;
+
+    private static final int DEFAULT_OPEN_FILES = 128;
+
+    private static final long DEFAULT_DELTA_BASE_CACHE_LIMIT = 10 * MB;
+
+    private static final long MAX_DELTA_BASE_CACHE_LIMIT = 64 * MB;
+
+    private static final String PACK_DIRECTORY = "objects/pack";
+
+    private static final String PACK_EXTENSION = ".pack";
+
+    private static final Object LOCK = new Object();
+
+    /**
+     * The settings currently installed, or null if the defaults haven't been changed
+     */
+    private static WindowCacheSettings installed;
+
+    /**
+     * If true, packs are read using memory mapping. Derived: false.
+     */
+    private final Boolean packedGitMmap;
+
+    /**
+     * The size of each cached part of a pack file, in bytes, which must be a power of 2 of at least 4096.
+     * Derived: 8 KB, or 64 KB if the packs are at least 256 MB.
+     */
+    private final Integer packedGitWindowSize;
+
+    /**
+     * The maximum number of bytes of pack files cached. Derived: the size of the packs, between 10 MB and 256 MB
+     * (or a quarter of the maximum heap size, if smaller).
+     */
+    private final Long packedGitLimit;
+
+    /**
+     * The maximum number of pack files open at once. Derived: the number of packs plus 32, and at least 128.
+     */
+    private final Integer packedGitOpenFiles;
+
+    /**
+     * The maximum number of bytes of inflated delta bases cached. Derived: 1/32 of the size of the packs,
+     * between 10 MB and 64 MB.
+     */
+    private final Integer deltaBaseCacheLimit;
+
+    /**
+     * Configure the window cache for a repository, before it's opened
+     *
+     * @param gitDir The git directory of the repository
+     * @param log    Logger
+     */
+    void install(@NonNull File gitDir, @NonNull Log log) {
+        long packSize = 0;
+        int packCount = 0;
+
+        File[] files = new File(gitDir, PACK_DIRECTORY).listFiles();
+
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(PACK_EXTENSION)) {
+                    packSize += file.length();
+                    packCount++;
+                }
+            }
+        }
+
+        synchronized (LOCK) {
+            WindowCacheSettings resolved = resolve(packSize, packCount, Runtime.getRuntime().maxMemory(), installed);
+
+            if (resolved.equals(installed)) {
+                return;
+            }
+
+            WindowCacheConfig config = new WindowCacheConfig();
+            config.setPackedGitMMAP(resolved.packedGitMmap);
+            config.setPackedGitWindowSize(resolved.packedGitWindowSize);
+            config.setPackedGitLimit(resolved.packedGitLimit);
+            config.setPackedGitOpenFiles(resolved.packedGitOpenFiles);
+            config.setDeltaBaseCacheLimit(resolved.deltaBaseCacheLimit);
+            config.install();
+
+            installed = resolved;
+            log.debug(String.format("Configured window cache for %d packs (%d bytes): %s", packCount, packSize, resolved));
+        }
+    }
+
+    /**
+     * @param packSize  The total size of the packs, in bytes
+     * @param packCount The number of packs
+     * @param maxMemory The maximum heap size, in bytes
+     * @param installed The settings currently installed, or null
+     * @return Settings with every value set, with derived values at least as large as the installed ones
+     */
+    WindowCacheSettings resolve(long packSize, int packCount, long maxMemory, WindowCacheSettings installed) {
+        boolean mmap = packedGitMmap != null ? packedGitMmap : installed != null && installed.packedGitMmap;
+
+        int windowSize = packedGitWindowSize != null
+            ? packedGitWindowSize
+            : atLeast(packSize >= LARGE_PACKS ? LARGE_WINDOW_SIZE : DEFAULT_WINDOW_SIZE, installed == null ? null : installed.packedGitWindowSize);
+
+        long limit = packedGitLimit != null
+            ? packedGitLimit
+            : Math.max(windowSize, atLeast(Math.max(DEFAULT_LIMIT, Math.min(packSize, Math.min(MAX_LIMIT, maxMemory / 4))), installed == null ? null : installed.packedGitLimit));
+
+        // a derived window size can't exceed a configured limit
+        if (packedGitWindowSize == null && windowSize > limit) {
+            windowSize = (int) Math.max(DEFAULT_WINDOW_SIZE, Long.highestOneBit(limit));
+        }
+
+        int openFiles = packedGitOpenFiles != null
+            ? packedGitOpenFiles
+            : atLeast(Math.max(DEFAULT_OPEN_FILES, packCount + 32), installed == null ? null : installed.packedGitOpenFiles);
+
+        int deltaBaseCache = deltaBaseCacheLimit != null
+            ? deltaBaseCacheLimit
+            : atLeast((int) Math.max(DEFAULT_DELTA_BASE_CACHE_LIMIT, Math.min(packSize / 32, MAX_DELTA_BASE_CACHE_LIMIT)), installed == null ? null : installed.deltaBaseCacheLimit);
+
+        return new WindowCacheSettings(mmap, windowSize, limit, openFiles, deltaBaseCache);
+    }
+
+    private static int atLeast(int value, Integer installed) {
+        return installed == null ? value : Math.max(value, installed);
+    }
+
+    private static long atLeast(long value, Long installed) {
+        return installed == null ? value : Math.max(value, installed);
+    }
+
+}
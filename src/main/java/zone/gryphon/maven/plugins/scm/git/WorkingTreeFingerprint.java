@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fingerprints the uncommitted changes in a working tree, so that builds of identical working trees can be
+ * identified even when they have uncommitted changes.
+ * <br><br>
+ * The fingerprint is a SHA-1 hash of a committed object id, followed by the blob id and path of each changed file in
+ * sorted order (or the zero id, if the file was deleted). Only the changed files are read.
+ */
+class WorkingTreeFingerprint {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Calculate a fingerprint
+     *
+     * @param repo    The repository
+     * @param type    The type of the committed object, e.g. {@link Constants#TYPE_COMMIT}
+     * @param base    The id of the committed object the changes are relative to
+     * @param changed Paths of the changed files, relative to the root of the working tree.
+     *                Untracked directories are expanded to the files in them which aren't ignored.
+     * @return The fingerprint, which is the id of {@code base} if there are no changes
+     * @throws IOException If the working tree can't be read
+     */
+    static String of(
+        @NonNull Repository repo,
+        @NonNull String type,
+        @NonNull AnyObjectId base,
+        @NonNull Collection<String> changed
+    ) throws IOException {
+        if (changed.isEmpty()) {
+            return base.name();
+        }
+
+        File workTree = repo.getWorkTree();
+        IgnoreRules ignoreRules = null;
+        List<String> paths = new ArrayList<>();
+
+        for (String path : changed) {
+            // untracked directories are reported as a single path by git status
+            if (path.endsWith("/") || Files.isDirectory(new File(workTree, path).toPath(), LinkOption.NOFOLLOW_LINKS)) {
+                ignoreRules = ignoreRules == null ? IgnoreRules.create(repo) : ignoreRules;
+                expand(workTree, path.endsWith("/") ? path.substring(0, path.length() - 1) : path, ignoreRules, paths);
+            } else {
+                paths.add(path);
+            }
+        }
+
+        // sorted after expanding directories, so the order is the same regardless of how the changes were listed
+        Collections.sort(paths);
+
+        MessageDigest digest = Constants.newMessageDigest();
+        digest.update(String.format("%s %s\n", type, base.name()).getBytes(UTF_8));
+
+        try (ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+            for (String path : paths) {
+                digest.update(String.format("%s %s\n", blobId(new File(workTree, path).toPath(), formatter).name(), path).getBytes(UTF_8));
+            }
+        }
+
+        return ObjectId.fromRaw(digest.digest()).name();
+    }
+
+    private static void expand(File workTree, String directory, IgnoreRules ignoreRules, List<String> out) throws IOException {
+        File[] children = new File(workTree, directory).listFiles();
+
+        if (children == null) {
+            return;
+        }
+
+        for (File child : children) {
+            String path = directory + "/" + child.getName();
+            boolean isDirectory = Files.isDirectory(child.toPath(), LinkOption.NOFOLLOW_LINKS);
+
+            if (ignoreRules.isIgnored(path, isDirectory)) {
+                continue;
+            }
+
+            if (isDirectory) {
+                expand(workTree, path, ignoreRules, out);
+            } else {
+                out.add(path);
+            }
+        }
+    }
+
+    /**
+     * @return The id the file would have if it was added to the repository, or the zero id if it doesn't exist
+     */
+    private static ObjectId blobId(Path file, ObjectInserter.Formatter formatter) throws IOException {
+        if (Files.isSymbolicLink(file)) {
+            return formatter.idFor(Constants.OBJ_BLOB, Files.readSymbolicLink(file).toString().getBytes(UTF_8));
+        }
+
+        if (Files.isRegularFile(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                return formatter.idFor(Constants.OBJ_BLOB, Files.size(file), in);
+            }
+        }
+
+        // deleted
+        return ObjectId.zeroId();
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.experimental.UtilityClass;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.IndexDiff;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+
+/**
+ * Calculates the status of the working tree using JGit.
+ * <br><br>
+ * This is kept separate from the metadata providers, so that providers which don't need the status
+ * (such as {@link GitEnvironmentScmMetadataProvider}, when the working tree is assumed to be clean)
+ * don't load the classes it uses.
+ */
+@UtilityClass
+final class WorkingTreeStatus {
+
+    /**
+     * Compares a tree with the index and working tree
+     *
+     * @param repo    The repository
+     * @param tree    The tree (or commit) to compare with the index
+     * @param options The options
+     * @param log     Logger
+     * @return The completed diff
+     * @throws IOException If the repository can't be read
+     */
+    static IndexDiff diff(Repository repo, ObjectId tree, GitOptions options, Log log) throws IOException {
+        ContentHashCache cache = options.isContentHashCache() ? ContentHashCache.load(repo.getDirectory(), log) : null;
+
+        StatusFileTreeIterator workingTree = new StatusFileTreeIterator(repo, cache, options.isStatOnlyFilteredFiles(), IgnoreRules.create(repo));
+
+        IndexDiff diff = new IndexDiff(repo, tree, workingTree);
+
+        SparseCheckoutFilter sparseCheckoutFilter = SparseCheckoutFilter.load(repo, log);
+
+        if (sparseCheckoutFilter != null) {
+            // IndexDiff walks the tree, the index and the working tree, in that order
+            diff.setFilter(sparseCheckoutFilter.orStaged(0, 1));
+        }
+
+        diff.diff();
+
+        if (cache != null) {
+            cache.save(log);
+        }
+
+        return diff;
+    }
+
+}
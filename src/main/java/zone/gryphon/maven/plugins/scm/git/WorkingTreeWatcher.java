@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import lombok.NonNull;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.lib.Constants;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Watches the directories of a working tree for changes, using a {@link WatchService}.
+ * <br><br>
+ * The git directory, and directories which are ignored (such as {@code target}), aren't watched, and events for
+ * ignored paths are discarded, so that build output doesn't count as a change.
+ * New directories aren't watched, since creating them is already a change.
+ * <br><br>
+ * The working tree isn't watched on platforms where the JDK has no native file change notification (notably macOS),
+ * since the fallback {@link WatchService} only polls every few seconds, so a change made just before a build would
+ * go unnoticed.
+ */
+class WorkingTreeWatcher implements Closeable {
+
+    /**
+     * Start watching a working tree
+     *
+     * @param workTree The root of the working tree
+     * @param ignored  The ignore rules of the working tree
+     * @param log      Logger
+     * @return The watcher, or null if the working tree can't be watched (for example because the operating system's
+     * limit on the number of watched directories was reached, or changes can only be detected by polling)
+     */
+    static WorkingTreeWatcher start(@NonNull File workTree, @NonNull IgnoreRules ignored, @NonNull Log log) {
+        WatchService service = null;
+
+        try {
+            service = FileSystems.getDefault().newWatchService();
+
+            if (isPolling(service)) {
+                log.debug(String.format("Not watching %s for changes, since changes are only detected by polling", workTree));
+                closeQuietly(service);
+                return null;
+            }
+
+            WorkingTreeWatcher watcher = new WorkingTreeWatcher(workTree.toPath().toAbsolutePath(), ignored, service);
+            int directories = watcher.register();
+            log.debug(String.format("Watching %d directories in %s", directories, workTree));
+            return watcher;
+        } catch (IOException | RuntimeException e) {
+            log.debug(String.format("Unable to watch %s for changes: %s", workTree, e.getMessage()));
+            closeQuietly(service);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the service is the JDK's {@code sun.nio.fs.PollingWatchService}, which only scans watched
+     * directories periodically
+     */
+    static boolean isPolling(@NonNull WatchService service) {
+        return service.getClass().getName().endsWith("PollingWatchService");
+    }
+
+    private final Path root;
+
+    private final IgnoreRules ignored;
+
+    private final WatchService service;
+
+    private boolean changed;
+
+    private WorkingTreeWatcher(Path root, IgnoreRules ignored, WatchService service) {
+        this.root = root;
+        this.ignored = ignored;
+        this.service = service;
+    }
+
+    private int register() throws IOException {
+        final int[] count = {0};
+
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                if (!dir.equals(root) && (isGitDir(dir) || ignored.isIgnored(relativePath(dir), true))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                count[0]++;
+                return FileVisitResult.CONTINUE;
+            }
+
+        });
+
+        return count[0];
+    }
+
+    /**
+     * @return true if a file in the working tree changed since the watcher was started.
+     * Once a change has been seen, this always returns true.
+     * @throws IOException If the ignore rules can't be read
+     */
+    synchronized boolean changed() throws IOException {
+        WatchKey key;
+
+        while (!changed && (key = service.poll()) != null) {
+            Path dir = (Path) key.watchable();
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    changed = true;
+                    break;
+                }
+
+                Path path = dir.resolve((Path) event.context());
+
+                if (isGitDir(path)) {
+                    continue;
+                }
+
+                // deleted paths are no longer directories, but are still matched by patterns for files
+                if (!ignored.isIgnored(relativePath(path), Files.isDirectory(path))) {
+                    changed = true;
+                    break;
+                }
+            }
+
+            key.reset();
+        }
+
+        return changed;
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(service);
+    }
+
+    private String relativePath(Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static boolean isGitDir(Path path) {
+        return Constants.DOT_GIT.equals(path.getFileName().toString());
+    }
+
+    private static void closeQuietly(WatchService service) {
+        if (service == null) {
+            return;
+        }
+
+        try {
+            service.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.model;
+
+import zone.gryphon.maven.plugins.scm.util.Util;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optional metadata which is only calculated when explicitly requested, since it requires more work than the
+ * metadata which is always calculated
+ */
+public enum AdditionalProperty {
+
+    /**
+     * The number of commits reachable from the current revision
+     */
+    COMMIT_COUNT,
+
+    /**
+     * The number of commits reachable from the current revision which aren't reachable from the nearest tag
+     */
+    TAG_DISTANCE,
+
+    /**
+     * The name of the tag pointing to the current revision
+     */
+    TAG,
+
+    /**
+     * A description of the current revision relative to the nearest tag
+     */
+    DESCRIBE,
+
+    /**
+     * The number of commits ahead of and behind the upstream branch
+     */
+    UPSTREAM,
+
+    /**
+     * The time, author, committer and subject of the current revision
+     */
+    COMMIT,
+
+    /**
+     * A fingerprint of the content of the module's directory
+     */
+    MODULE_TREE,
+
+    /**
+     * A fingerprint of the current revision combined with any uncommitted changes
+     */
+    WORKTREE_FINGERPRINT;
+
+    private static final Map<String, AdditionalProperty> names;
+
+    static {
+        Map<String, AdditionalProperty> local = new HashMap<>();
+
+        for (AdditionalProperty value : AdditionalProperty.values()) {
+            local.put(value.name(), value);
+        }
+
+        names = Collections.unmodifiableMap(local);
+    }
+
+    public static Set<AdditionalProperty> parseCsv(String input) {
+
+        if (Util.isBlank(input)) {
+            return Collections.emptySet();
+        }
+
+        final Set<AdditionalProperty> out = EnumSet.noneOf(AdditionalProperty.class);
+
+        final String[] parts = input.split(",");
+
+        for (String part : parts) {
+            AdditionalProperty value = names.get(part.trim().toUpperCase());
+
+            if (value == null) {
+                throw new IllegalArgumentException(String.format("Illegal value \"%s\" in input string \"%s\". Legal values: %s", part, input, names.keySet()));
+            }
+
+            out.add(value);
+        }
+
+        return Collections.unmodifiableSet(out);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.model;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Metadata about a single commit
+ */
+@Value
+@Builder(toBuilder = true)
+public class CommitInfo {
+
+    /**
+     * The commit time, in milliseconds since the epoch
+     */
+    private final long commitTime;
+
+    /**
+     * The offset of the committer's time zone from UTC, in minutes
+     */
+    private final int commitTimeZoneOffset;
+
+    @NonNull
+    private final String authorName;
+
+    @NonNull
+    private final String authorEmail;
+
+    @NonNull
+    private final String committerName;
+
+    @NonNull
+    private final String committerEmail;
+
+    /**
+     * The first paragraph of the commit message, joined into a single line
+     */
+    @NonNull
+    private final String subject;
+
+    /**
+     * @return The commit time in ISO 8601 format, in the committer's time zone
+     * (the same format as <code>git log --format=%cI</code>, e.g. <code>2019-10-12T14:03:51+02:00</code>)
+     */
+    public String formatCommitTime() {
+        int offset = Math.abs(commitTimeZoneOffset);
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        return String.format("%s%s%02d:%02d",
+            format.format(new Date(commitTime + commitTimeZoneOffset * 60000L)),
+            commitTimeZoneOffset < 0 ? "-" : "+",
+            offset / 60,
+            offset % 60);
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.model;
+
+import zone.gryphon.maven.plugins.scm.util.Util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Formats the calculated properties can be written to a file in
+ */
+public enum OutputFormat {
+
+    /**
+     * A Java properties file, in the format read by {@link java.util.Properties#load(java.io.InputStream)}
+     */
+    PROPERTIES,
+
+    /**
+     * A JSON object, with a string member for each property
+     */
+    JSON;
+
+    private static final Map<String, OutputFormat> names;
+
+    static {
+        Map<String, OutputFormat> local = new HashMap<>();
+
+        for (OutputFormat value : OutputFormat.values()) {
+            local.put(value.name(), value);
+        }
+
+        names = Collections.unmodifiableMap(local);
+    }
+
+    public static OutputFormat parse(String input) {
+
+        if (Util.isBlank(input)) {
+            return PROPERTIES;
+        }
+
+        OutputFormat value = names.get(input.trim().toUpperCase());
+
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Illegal value \"%s\". Legal values: %s", input, names.keySet()));
+        }
+
+        return value;
+    }
+
+}
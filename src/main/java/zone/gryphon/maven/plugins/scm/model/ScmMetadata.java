@@ -34,7 +34,61 @@ public class ScmMetadata {
     @NonNull
     private final Boolean uncommittedChangesPresent;
 
+    /**
+     * The abbreviated form of {@link #revision}, or null if the revision should simply be truncated
+     */
+    private final String shortRevision;
+
     @NonNull
     private final List<String> remotePathSegments;
 
+    /**
+     * The number of commits reachable from {@link #revision}, or null if not calculated
+     */
+    private final Long commitCount;
+
+    /**
+     * The number of commits since the nearest tag, or null if not calculated or if no tag is reachable
+     */
+    private final Long tagDistance;
+
+    /**
+     * The name of the tag pointing to {@link #revision}, or null if not calculated or if the revision isn't tagged
+     */
+    private final String tag;
+
+    /**
+     * A description of {@link #revision} relative to the nearest tag (in the style of {@code git describe}),
+     * or null if not calculated or if no tag is reachable
+     */
+    private final String describe;
+
+    /**
+     * Metadata about the commit {@link #revision} refers to, or null if not calculated
+     */
+    private final CommitInfo commit;
+
+    /**
+     * The number of commits on the current branch which aren't on its upstream branch, {@code >N} if more commits
+     * than the configured limit would need to be visited to count them, or null if not calculated or if the branch
+     * has no upstream
+     */
+    private final String upstreamAhead;
+
+    /**
+     * The number of commits on the upstream branch which aren't on the current branch, in the same format as
+     * {@link #upstreamAhead}
+     */
+    private final String upstreamBehind;
+
+    /**
+     * A fingerprint of the content of the module's directory, or null if not calculated
+     */
+    private final String moduleTree;
+
+    /**
+     * A fingerprint of {@link #revision} combined with any uncommitted changes, or null if not calculated
+     */
+    private final String worktreeFingerprint;
+
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.util;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import zone.gryphon.maven.plugins.scm.model.CommitInfo;
+import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Converts {@link ScmMetadata} to and from properties, so that metadata calculated by one build can be re-used by
+ * later builds of the same checkout.
+ * <br><br>
+ * The properties include a fingerprint of the checkout and configuration the metadata was calculated for, and are
+ * only imported if the fingerprint matches.
+ */
+@UtilityClass
+public final class MetadataExport {
+
+    private static final String VERSION = "1";
+
+    private static final String VERSION_KEY = "version";
+
+    private static final String FINGERPRINT_KEY = "fingerprint";
+
+    private static final String SEGMENT_COUNT_KEY = "remote.path.segments";
+
+    private static final String SEGMENT_KEY = "remote.path.segment.%d";
+
+    /**
+     * @param metadata    The metadata
+     * @param fingerprint Fingerprint of the checkout and configuration the metadata was calculated for
+     * @return The properties to export
+     */
+    public static Map<String, String> export(@NonNull ScmMetadata metadata, @NonNull String fingerprint) {
+        Map<String, String> out = new HashMap<>();
+
+        out.put(VERSION_KEY, VERSION);
+        out.put(FINGERPRINT_KEY, fingerprint);
+
+        out.put("branch", metadata.getBranch());
+        out.put("revision", metadata.getRevision());
+        out.put("dirty", Boolean.toString(metadata.getUncommittedChangesPresent()));
+
+        putIfNonNull(out, "revision.short", metadata.getShortRevision());
+        putIfNonNull(out, "commit.count", metadata.getCommitCount());
+        putIfNonNull(out, "tag.distance", metadata.getTagDistance());
+        putIfNonNull(out, "tag", metadata.getTag());
+        putIfNonNull(out, "describe", metadata.getDescribe());
+        putIfNonNull(out, "upstream.ahead", metadata.getUpstreamAhead());
+        putIfNonNull(out, "upstream.behind", metadata.getUpstreamBehind());
+        putIfNonNull(out, "module.tree", metadata.getModuleTree());
+        putIfNonNull(out, "worktree.fingerprint", metadata.getWorktreeFingerprint());
+
+        List<String> segments = metadata.getRemotePathSegments();
+        out.put(SEGMENT_COUNT_KEY, Integer.toString(segments.size()));
+
+        for (int i = 0; i < segments.size(); i++) {
+            out.put(String.format(SEGMENT_KEY, i), segments.get(i));
+        }
+
+        CommitInfo commit = metadata.getCommit();
+
+        if (commit != null) {
+            out.put("commit.time", Long.toString(commit.getCommitTime()));
+            out.put("commit.time.offset", Integer.toString(commit.getCommitTimeZoneOffset()));
+            out.put("commit.author.name", commit.getAuthorName());
+            out.put("commit.author.email", commit.getAuthorEmail());
+            out.put("commit.committer.name", commit.getCommitterName());
+            out.put("commit.committer.email", commit.getCommitterEmail());
+            out.put("commit.subject", commit.getSubject());
+        }
+
+        return out;
+    }
+
+    /**
+     * @param properties  Properties previously created by {@link #export(ScmMetadata, String)}
+     * @param fingerprint Fingerprint of the current checkout and configuration
+     * @return The metadata, or null if the properties were exported for a different fingerprint, or by an
+     * incompatible version of the plugin
+     * @throws IllegalArgumentException If the properties are malformed
+     */
+    public static ScmMetadata load(@NonNull Properties properties, @NonNull String fingerprint) {
+        if (!VERSION.equals(properties.getProperty(VERSION_KEY)) || !fingerprint.equals(properties.getProperty(FINGERPRINT_KEY))) {
+            return null;
+        }
+
+        int segmentCount = Integer.parseInt(required(properties, SEGMENT_COUNT_KEY));
+        List<String> segments = new ArrayList<>(segmentCount);
+
+        for (int i = 0; i < segmentCount; i++) {
+            segments.add(required(properties, String.format(SEGMENT_KEY, i)));
+        }
+
+        ScmMetadata.ScmMetadataBuilder builder = ScmMetadata.builder()
+            .branch(required(properties, "branch"))
+            .revision(required(properties, "revision"))
+            .uncommittedChangesPresent(Boolean.parseBoolean(required(properties, "dirty")))
+            .shortRevision(properties.getProperty("revision.short"))
+            .remotePathSegments(segments)
+            .commitCount(parseLong(properties.getProperty("commit.count")))
+            .tagDistance(parseLong(properties.getProperty("tag.distance")))
+            .tag(properties.getProperty("tag"))
+            .describe(properties.getProperty("describe"))
+            .upstreamAhead(properties.getProperty("upstream.ahead"))
+            .upstreamBehind(properties.getProperty("upstream.behind"))
+            .moduleTree(properties.getProperty("module.tree"))
+            .worktreeFingerprint(properties.getProperty("worktree.fingerprint"));
+
+        if (properties.getProperty("commit.time") != null) {
+            builder.commit(CommitInfo.builder()
+                .commitTime(Long.parseLong(properties.getProperty("commit.time")))
+                .commitTimeZoneOffset(Integer.parseInt(required(properties, "commit.time.offset")))
+                .authorName(required(properties, "commit.author.name"))
+                .authorEmail(required(properties, "commit.author.email"))
+                .committerName(required(properties, "commit.committer.name"))
+                .committerEmail(required(properties, "commit.committer.email"))
+                .subject(required(properties, "commit.subject"))
+                .build());
+        }
+
+        return builder.build();
+    }
+
+    private static void putIfNonNull(Map<String, String> out, String key, Object value) {
+        if (value != null) {
+            out.put(key, value.toString());
+        }
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("Missing property \"%s\"", key));
+        }
+
+        return value;
+    }
+
+    private static Long parseLong(String value) {
+        return value == null ? null : Long.parseLong(value);
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.util;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import zone.gryphon.maven.plugins.scm.model.OutputFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes generated files, without modifying a file if its content wouldn't change.
+ * <br><br>
+ * The content only depends on the properties (they're sorted, and no timestamp is written), so an unchanged file
+ * keeps its modification time, and doesn't invalidate incremental builds of anything which packages it.
+ */
+@UtilityClass
+public final class MetadataFiles {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Write properties to a file, if the file doesn't already contain them
+     *
+     * @param file       The file
+     * @param properties The properties
+     * @param format     The format of the file
+     * @return true if the file was written, false if it was already up to date
+     * @throws IOException If the file can't be read or written
+     */
+    public static boolean write(@NonNull File file, @NonNull Map<String, String> properties, @NonNull OutputFormat format) throws IOException {
+        return writeIfChanged(file, render(properties, format));
+    }
+
+    /**
+     * Write content to a file, if the file doesn't already contain it
+     *
+     * @param file    The file
+     * @param content The content
+     * @return true if the file was written, false if it was already up to date
+     * @throws IOException If the file can't be read or written
+     */
+    public static boolean writeIfChanged(@NonNull File file, @NonNull byte[] content) throws IOException {
+        try {
+            if (Arrays.equals(Files.readAllBytes(file.toPath()), content)) {
+                return false;
+            }
+        } catch (NoSuchFileException e) {
+            // written below
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+
+        // written atomically, so that a concurrent reader never sees a partial file
+        File temp = File.createTempFile(file.getName(), ".tmp", parent);
+
+        try {
+            Files.write(temp.toPath(), content);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+
+        return true;
+    }
+
+    static byte[] render(Map<String, String> properties, OutputFormat format) {
+        Map<String, String> sorted = new TreeMap<>(properties);
+        StringBuilder out = new StringBuilder();
+
+        if (format == OutputFormat.JSON) {
+            out.append("{\n");
+
+            int remaining = sorted.size();
+
+            for (Map.Entry<String, String> entry : sorted.entrySet()) {
+                out.append("  ");
+                appendJsonString(out, entry.getKey());
+                out.append(": ");
+                appendJsonString(out, entry.getValue());
+                out.append(--remaining > 0 ? ",\n" : "\n");
+            }
+
+            out.append("}\n");
+            return out.toString().getBytes(UTF_8);
+        }
+
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            appendProperty(out, entry.getKey(), true);
+            out.append('=');
+            appendProperty(out, entry.getValue(), false);
+            out.append('\n');
+        }
+
+        return out.toString().getBytes(ISO_8859_1);
+    }
+
+    /**
+     * Escapes a key or value in the same way as {@link java.util.Properties#store(java.io.OutputStream, String)}
+     */
+    private static void appendProperty(StringBuilder out, String value, boolean key) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case ' ':
+                    if (i == 0 || key) {
+                        out.append('\\');
+                    }
+                    out.append(' ');
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\f':
+                    out.append("\\f");
+                    break;
+                case '\\':
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    out.append('\\').append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        appendUnicodeEscape(out, c);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        appendUnicodeEscape(out, c);
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+
+        out.append('"');
+    }
+
+    private static void appendUnicodeEscape(StringBuilder out, char c) {
+        out.append("\\u")
+            .append(HEX[(c >> 12) & 0xF])
+            .append(HEX[(c >> 8) & 0xF])
+            .append(HEX[(c >> 4) & 0xF])
+            .append(HEX[c & 0xF]);
+    }
+
+}
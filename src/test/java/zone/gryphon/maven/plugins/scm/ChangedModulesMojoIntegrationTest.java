@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangedModulesMojoIntegrationTest extends AbstractScmMetadataMavenPluginMojoIntegrationTest {
+
+    private static final String GROUP_ID = "zone.gryphon.ignore";
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    /**
+     * The reactor, keyed by the directory of each module relative to the root of the working tree.
+     * The root of the reactor is in a subdirectory, so that some files are outside of every module.
+     */
+    private final Map<String, MavenProject> modules = new LinkedHashMap<>();
+
+    @Before
+    public void setupRepository() throws Exception {
+        module("build", "root", "module-a", "module-b", "module-c");
+        module("build/module-a", "module-a", "nested");
+        module("build/module-a/nested", "nested");
+        module("build/module-b", "module-b");
+        module("build/module-c", "module-c");
+
+        repository.write("docs/notes.md", "notes");
+        repository.write("build/module-a/nested/src/file.txt", "nested");
+        repository.write("build/module-c/src/file.txt", "c");
+        repository.commitAll("base");
+        repository.getGit().branchCreate().setName("base").call();
+    }
+
+    @Test
+    public void attributionTest() throws Exception {
+        // committed, and attributed to the nested module rather than its parent
+        repository.write("build/module-a/nested/src/file.txt", "modified");
+        repository.commitAll("second");
+
+        // untracked, in a directory which doesn't exist in the base revision
+        repository.write("build/module-b/src/new/file.txt", "new");
+
+        // an untracked module
+        module("build/module-d", "module-d");
+
+        // outside of every module
+        repository.write("docs/notes.md", "modified");
+
+        File outputFile = new File(folder, "changed-modules.txt");
+        execute(outputFile);
+
+        assertChanged("build/module-a/nested", "build/module-b", "build/module-d");
+        assertThat(FileUtils.readFileToString(outputFile, "UTF-8")).isEqualTo(String.format("%s:nested,%s:module-b,%s:module-d", GROUP_ID, GROUP_ID, GROUP_ID));
+
+        for (MavenProject project : modules.values()) {
+            assertThat(project.getProperties().getProperty("scm.metadata.changed.modules")).isEqualTo(FileUtils.readFileToString(outputFile, "UTF-8"));
+        }
+    }
+
+    @Test
+    public void unchangedTest() throws Exception {
+        // outside of every module
+        repository.write("docs/notes.md", "modified");
+
+        File outputFile = new File(folder, "changed-modules.txt");
+        execute(outputFile);
+
+        assertChanged();
+        assertThat(FileUtils.readFileToString(outputFile, "UTF-8")).isEmpty();
+    }
+
+    @Test
+    public void rootModuleTest() throws Exception {
+        repository.write("build/README.md", "new");
+
+        execute(null);
+
+        // only the closest module
+        assertChanged("build");
+    }
+
+    private void assertChanged(String... changed) {
+        List<String> expected = Arrays.asList(changed);
+
+        for (Map.Entry<String, MavenProject> entry : modules.entrySet()) {
+            boolean isChanged = expected.contains(entry.getKey());
+
+            assertThat(entry.getValue().getProperties().getProperty("scm.metadata.module.changed"))
+                .describedAs(entry.getKey())
+                .isEqualTo(Boolean.toString(isChanged));
+
+            assertThat(entry.getValue().getProperties().getProperty("scm.metadata.module.unchanged"))
+                .describedAs(entry.getKey())
+                .isEqualTo(Boolean.toString(!isChanged));
+        }
+    }
+
+    private void execute(File outputFile) throws Exception {
+        List<MavenProject> projects = new ArrayList<>();
+
+        for (String path : modules.keySet()) {
+            MavenProject project = rule.readMavenProject(repository.file(path));
+            project.setExecutionRoot(projects.isEmpty());
+            projects.add(project);
+            modules.put(path, project);
+        }
+
+        MavenSession session = rule.newMavenSession(projects.get(0));
+        session.setProjects(projects);
+
+        MojoExecution execution = rule.newMojoExecution("changed-modules");
+        ChangedModulesMojo mojo = (ChangedModulesMojo) rule.lookupConfiguredMojo(session, execution);
+        rule.setVariableValueToObject(mojo, "baseRef", "base");
+        rule.setVariableValueToObject(mojo, "outputFile", outputFile);
+        mojo.execute();
+    }
+
+    /**
+     * Write the POM of a module, and add it to the reactor
+     */
+    private void module(String path, String artifactId, String... children) throws Exception {
+        StringBuilder pom = new StringBuilder()
+            .append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n")
+            .append("    <modelVersion>4.0.0</modelVersion>\n")
+            .append(String.format("    <groupId>%s</groupId>%n", GROUP_ID))
+            .append(String.format("    <artifactId>%s</artifactId>%n", artifactId))
+            .append("    <version>1.0-SNAPSHOT</version>\n")
+            .append(String.format("    <packaging>%s</packaging>%n", children.length == 0 ? "jar" : "pom"));
+
+        if (children.length > 0) {
+            pom.append("    <modules>\n");
+
+            for (String child : children) {
+                pom.append(String.format("        <module>%s</module>%n", child));
+            }
+
+            pom.append("    </modules>\n");
+        }
+
+        repository.write(path + "/pom.xml", pom.append("</project>\n").toString());
+        modules.put(path, null);
+    }
+
+}
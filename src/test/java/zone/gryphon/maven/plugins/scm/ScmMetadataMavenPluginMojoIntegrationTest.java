@@ -16,12 +16,23 @@
 package zone.gryphon.maven.plugins.scm;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
 import org.junit.Test;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,6 +43,9 @@ public class ScmMetadataMavenPluginMojoIntegrationTest extends AbstractScmMetada
 
     private static final File TEST_POM_FOLDER = newFile(TARGET_FOLDER, "test-classes", "test-poms", "git");
 
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
     private final String[] DEFAULT_GIT_ARRAY_PROPERTIES = concat(DEFAULT_PROPERTIES, new String[]{
         "scm.metadata.remote.path.segment[0]",
         "scm.metadata.remote.path.segment[1]",
@@ -68,6 +82,246 @@ public class ScmMetadataMavenPluginMojoIntegrationTest extends AbstractScmMetada
         assertThat(actual.getProperty("scm.metadata.revision")).startsWith(actual.getProperty("scm.metadata.revision.short"));
     }
 
+    @Test
+    public void cliBackendTest() throws Exception {
+        copy(new File(TEST_POM_FOLDER, "pom-simple.xml"), pom);
+
+        MavenProject project = readProject();
+        readScmMetadataMavenPluginMojo(project).execute();
+        Properties expected = copyOf(project.getProperties());
+
+        FileUtils.deleteQuietly(pom);
+        copy(new File(TEST_POM_FOLDER, "pom-cli-backend.xml"), pom);
+
+        project = readProject();
+
+        ScmMetadataMavenPluginMojo mojo = readScmMetadataMavenPluginMojo(project);
+
+        assertThat(project.getProperties()).isEmpty();
+
+        mojo.execute();
+
+        // the CLI backend (or the JGit fallback, if git isn't installed) must produce the same values as JGit
+        assertThat(project.getProperties()).isEqualTo(expected);
+    }
+
+    @Test
+    public void uniqueShortRevisionTest() throws Exception {
+        copy(new File(TEST_POM_FOLDER, "pom-unique-short-revision.xml"), pom);
+
+        MavenProject project = readProject();
+
+        ScmMetadataMavenPluginMojo mojo = readScmMetadataMavenPluginMojo(project);
+
+        assertThat(project.getProperties()).isEmpty();
+
+        mojo.execute();
+
+        Properties actual = project.getProperties();
+
+        assertThat(actual).containsOnlyKeys(DEFAULT_GIT_ARRAY_PROPERTIES);
+        assertThat(actual.getProperty("scm.metadata.revision")).startsWith(actual.getProperty("scm.metadata.revision.short"));
+        assertThat(actual.getProperty("scm.metadata.revision.short").length()).isGreaterThanOrEqualTo(8);
+    }
+
+    @Test
+    public void additionalPropertiesTest() throws Exception {
+        copy(new File(TEST_POM_FOLDER, "pom-additional-properties.xml"), pom);
+
+        MavenProject project = readProject();
+
+        ScmMetadataMavenPluginMojo mojo = readScmMetadataMavenPluginMojo(project);
+
+        assertThat(project.getProperties()).isEmpty();
+
+        mojo.execute();
+
+        Properties actual = project.getProperties();
+
+        assertThat(actual).containsOnlyKeys((Object[]) concat(DEFAULT_GIT_ARRAY_PROPERTIES, new String[]{"scm.metadata.commit.count"}));
+        assertThat(Long.parseLong(actual.getProperty("scm.metadata.commit.count"))).isPositive();
+    }
+
+    @Test
+    public void commitPropertiesTest() throws Exception {
+        copy(new File(TEST_POM_FOLDER, "pom-commit-properties.xml"), pom);
+
+        MavenProject project = readProject();
+
+        ScmMetadataMavenPluginMojo mojo = readScmMetadataMavenPluginMojo(project);
+
+        assertThat(project.getProperties()).isEmpty();
+
+        mojo.execute();
+
+        Properties actual = project.getProperties();
+
+        assertThat(actual).containsOnlyKeys((Object[]) concat(DEFAULT_GIT_ARRAY_PROPERTIES, new String[]{
+            "scm.metadata.commit.timestamp",
+            "scm.metadata.commit.author.name",
+            "scm.metadata.commit.author.email",
+            "scm.metadata.commit.committer.name",
+            "scm.metadata.commit.committer.email",
+            "scm.metadata.commit.subject"
+        }));
+        assertThat(actual.getProperty("scm.metadata.commit.timestamp")).matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}[+-]\\d{2}:\\d{2}");
+        assertThat(actual.getProperty("scm.metadata.commit.subject")).isNotEmpty();
+    }
+
+    @Test
+    public void outputTimestampTest() throws Exception {
+        copy(new File(TEST_POM_FOLDER, "pom-output-timestamp.xml"), pom);
+
+        MavenProject project = readProject();
+
+        ScmMetadataMavenPluginMojo mojo = readScmMetadataMavenPluginMojo(project);
+
+        assertThat(project.getProperties()).isEmpty();
+
+        mojo.execute();
+
+        Properties actual = project.getProperties();
+
+        // the commit properties are only used internally
+        assertThat(actual).containsOnlyKeys((Object[]) concat(DEFAULT_GIT_ARRAY_PROPERTIES, new String[]{"project.build.outputTimestamp"}));
+
+        if (Boolean.parseBoolean(actual.getProperty("scm.metadata.dirty"))) {
+            assertThat(actual.getProperty("project.build.outputTimestamp")).isEqualTo("2000-01-01T00:00:00Z");
+        } else {
+            assertThat(actual.getProperty("project.build.outputTimestamp")).matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}[+-]\\d{2}:\\d{2}");
+        }
+    }
+
+    @Test
+    public void incrementalBuildTest() throws Exception {
+        copy(new File(TEST_POM_FOLDER, "pom-simple.xml"), pom);
+
+        MavenProject project = readProject();
+        ScmMetadataMavenPluginMojo mojo = readScmMetadataMavenPluginMojo(project);
+
+        IncrementalBuildContext context = new IncrementalBuildContext();
+        rule.setVariableValueToObject(mojo, "buildContext", context);
+
+        mojo.execute();
+
+        Properties expected = copyOf(project.getProperties());
+        assertThat(context.values).containsOnlyKeys(ScmMetadataMavenPluginMojo.class.getName() + ".metadata");
+        Object cached = context.values.values().iterator().next();
+
+        project.getProperties().clear();
+        mojo.execute();
+
+        assertThat(project.getProperties()).isEqualTo(expected);
+        assertThat(context.values.values()).containsExactly(cached);
+    }
+
+    @Test
+    public void exportImportTest() throws Exception {
+        copy(new File(TEST_POM_FOLDER, "pom-export.xml"), pom);
+
+        MavenProject project = readProject();
+        readScmMetadataMavenPluginMojo(project).execute();
+
+        File exported = newFile(folder, "target", "scm-metadata.properties");
+        assertThat(exported).isFile();
+
+        Properties expected = copyOf(project.getProperties());
+
+        // imported by the next build, without being recalculated
+        Properties content = new Properties();
+
+        try (InputStream in = new FileInputStream(exported)) {
+            content.load(in);
+        }
+
+        content.setProperty("branch", "imported");
+
+        try (OutputStream out = new FileOutputStream(exported)) {
+            content.store(out, null);
+        }
+
+        MavenProject next = readProject();
+        readScmMetadataMavenPluginMojo(next).execute();
+
+        expected.setProperty("scm.metadata.branch", "imported");
+        assertThat(next.getProperties()).isEqualTo(expected);
+    }
+
+    @Test
+    public void exportWithCliBackendTest() throws Exception {
+        copy(new File(TEST_POM_FOLDER, "pom-export.xml"), pom);
+
+        // stat-dirty but unchanged, so "git status" refreshes the index
+        repository.write("a.txt", "a");
+        repository.commitAll("first");
+        assertThat(repository.file("a.txt").setLastModified((System.currentTimeMillis() / 1000 - 60) * 1000)).isTrue();
+
+        MavenProject project = readProject();
+        executeWithCliBackend(project);
+
+        File exported = newFile(folder, "target", "scm-metadata.properties");
+        Properties content = new Properties();
+
+        try (InputStream in = new FileInputStream(exported)) {
+            content.load(in);
+        }
+
+        content.setProperty("branch", "imported");
+
+        try (OutputStream out = new FileOutputStream(exported)) {
+            content.store(out, null);
+        }
+
+        // the export must match the checkout as it was left by calculating the metadata
+        MavenProject next = readProject();
+        executeWithCliBackend(next);
+
+        assertThat(next.getProperties().getProperty("scm.metadata.branch")).isEqualTo("imported");
+    }
+
+    @Test
+    public void buildInfoTest() throws Exception {
+        copy(new File(TEST_POM_FOLDER, "pom-simple.xml"), pom);
+
+        MavenProject project = readProject();
+
+        readScmMetadataMavenPluginMojo(project).execute();
+
+        // configured here, since the metadata goal shares the plugin configuration in the POM
+        BuildInfoMojo mojo = (BuildInfoMojo) rule.lookupConfiguredMojo(project, "build-info");
+        rule.setVariableValueToObject(mojo, "packageName", "com.example.build");
+        rule.setVariableValueToObject(mojo, "excludes", "dirty,remote.path.segment*");
+        mojo.execute();
+
+        File source = newFile(folder, "target", "generated-sources", "scm-metadata", "com", "example", "build", "BuildInfo.java");
+        String content = FileUtils.readFileToString(source, "UTF-8");
+
+        assertThat(content)
+            .startsWith("package com.example.build;")
+            .contains(String.format("public static final String REVISION = \"%s\";", project.getProperties().getProperty("scm.metadata.revision")))
+            .contains("public static final String REVISION_SHORT = ")
+            .contains("public static final String BRANCH = ")
+            .doesNotContain("DIRTY")
+            .doesNotContain("REMOTE_PATH_SEGMENT");
+
+        List<String> sourceRoots = project.getCompileSourceRoots();
+        assertThat(sourceRoots).contains(newFile(folder, "target", "generated-sources", "scm-metadata").getAbsolutePath());
+
+        // not rewritten if nothing changed
+        assertThat(source.setLastModified(1000000000000L)).isTrue();
+        mojo.execute();
+        assertThat(source.lastModified()).isEqualTo(1000000000000L);
+    }
+
+    @Test
+    public void constantNameTest() {
+        assertThat(BuildInfoMojo.constantName("revision.short")).isEqualTo("REVISION_SHORT");
+        assertThat(BuildInfoMojo.constantName("remote.path.segment[-1]")).isEqualTo("REMOTE_PATH_SEGMENT_MINUS_1");
+        assertThat(BuildInfoMojo.constantName("remote.path.segment.-1")).isEqualTo("REMOTE_PATH_SEGMENT_MINUS_1");
+        assertThat(BuildInfoMojo.constantName("remote.path.segment[0]")).isEqualTo("REMOTE_PATH_SEGMENT_0");
+        assertThat(BuildInfoMojo.constantName("0")).isEqualTo("_0");
+    }
+
     @Test
     public void propertyRemotePathNotationTest() throws Exception {
         copy(new File(TEST_POM_FOLDER, "pom-property-notation.xml"), pom);
@@ -231,5 +485,32 @@ public class ScmMetadataMavenPluginMojoIntegrationTest extends AbstractScmMetada
         }
     }
 
+    private void executeWithCliBackend(MavenProject project) throws Exception {
+        ScmMetadataMavenPluginMojo mojo = readScmMetadataMavenPluginMojo(project);
+        rule.setVariableValueToObject(mojo, "directory", repository.getDirectory());
+        rule.setVariableValueToObject(mojo, "gitBackend", "CLI");
+        mojo.execute();
+    }
+
+    private static class IncrementalBuildContext extends DefaultBuildContext {
+
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public boolean isIncremental() {
+            return true;
+        }
+
+        @Override
+        public void setValue(String key, Object value) {
+            values.put(key, value);
+        }
+
+        @Override
+        public Object getValue(String key) {
+            return values.get(key);
+        }
+
+    }
 
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BranchIndexTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    @Test
+    public void branchAtTest() throws Exception {
+        RevCommit first = repository.getGit().commit().setMessage("first").call();
+        RevCommit second = repository.getGit().commit().setMessage("second").call();
+        RevCommit third = repository.getGit().commit().setMessage("third").call();
+
+        update("refs/remotes/origin/feature/b", first);
+        update("refs/remotes/upstream/feature/a", first);
+        update("refs/remotes/origin/release", second);
+        update("refs/heads/local", second);
+        update("refs/remotes/origin/master", third);
+        repository.getRepository().updateRef("refs/remotes/origin/HEAD").link("refs/remotes/origin/master");
+        repository.getGit().checkout().setName(first.name()).call();
+
+        BranchIndex index = BranchIndex.load(repository.getRepository(), log);
+
+        // the name of the remote is stripped, and the least name is used
+        assertThat(index.branchAt(first)).isEqualTo("feature/a");
+
+        // local branches are preferred
+        assertThat(index.branchAt(second)).isEqualTo("local");
+
+        // origin/HEAD is ignored
+        assertThat(index.branchAt(third)).isEqualTo("master");
+    }
+
+    @Test
+    public void branchContainingTest() throws Exception {
+        RevCommit first = repository.getGit().commit().setMessage("first").call();
+        RevCommit second = repository.getGit().commit().setMessage("second").call();
+        RevCommit third = repository.getGit().commit().setMessage("third").call();
+        RevCommit fourth = repository.getGit().commit().setMessage("fourth").call();
+
+        update("refs/heads/master", fourth);
+        update("refs/heads/topic", second);
+
+        BranchIndex index = BranchIndex.load(repository.getRepository(), log);
+
+        assertThat(index.branchAt(first)).isNull();
+
+        // topic is closer than master
+        assertThat(index.branchContaining(repository.getRepository(), first, Integer.MAX_VALUE)).isEqualTo("topic");
+        assertThat(index.branchContaining(repository.getRepository(), third, Integer.MAX_VALUE)).isEqualTo("master");
+
+        // both tips and the parent of each tip are visited
+        assertThat(index.branchContaining(repository.getRepository(), first, 4)).isEqualTo("topic");
+        assertThat(index.branchContaining(repository.getRepository(), first, 3)).isNull();
+    }
+
+    @Test
+    public void cachedIndexTest() throws Exception {
+        RevCommit first = repository.getGit().commit().setMessage("first").call();
+
+        BranchIndex index = BranchIndex.load(repository.getRepository(), log);
+        assertThat(BranchIndex.load(repository.getRepository(), log)).isSameAs(index);
+
+        RevCommit second = repository.getGit().commit().setMessage("second").call();
+        update("refs/heads/other", second);
+
+        BranchIndex updated = BranchIndex.load(repository.getRepository(), log);
+        assertThat(updated).isNotSameAs(index);
+        assertThat(updated.branchAt(first)).isNull();
+        assertThat(updated.branchAt(second)).isEqualTo("master");
+    }
+
+    private void update(String ref, ObjectId id) throws IOException {
+        RefUpdate update = repository.getRepository().updateRef(ref);
+        update.setNewObjectId(id);
+        update.forceUpdate();
+    }
+
+}
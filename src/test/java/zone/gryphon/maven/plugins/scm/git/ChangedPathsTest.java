@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangedPathsTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    private RevCommit base;
+
+    @Before
+    public void setup() throws Exception {
+        repository.write("pom.xml", "root");
+        repository.write("a/pom.xml", "a");
+        repository.write("b/pom.xml", "b");
+        repository.write("c/pom.xml", "c");
+
+        base = repository.commitAll("base");
+        repository.getGit().branchCreate().setName("base").call();
+    }
+
+    @Test
+    public void findTest() throws Exception {
+        repository.write("a/pom.xml", "a2");
+        repository.commitAll("change a");
+
+        repository.write("b/pom.xml", "b2");
+        repository.write("c/new.txt", "new");
+
+        ChangedPaths all = ChangedPaths.find(repository.getDirectory(), "base", false, true, GitOptions.DEFAULTS, log);
+        assertThat(all.getBase()).isEqualTo(base.name());
+        assertThat(all.getPaths()).containsOnly("a/pom.xml", "b/pom.xml", "c/new.txt");
+
+        ChangedPaths committed = ChangedPaths.find(repository.getDirectory(), "base", false, false, GitOptions.DEFAULTS, log);
+        assertThat(committed.getPaths()).containsOnly("a/pom.xml");
+
+        assertThat(all.relativePath(repository.file("a"))).isEqualTo("a");
+        assertThat(all.relativePath(repository.getDirectory())).isEqualTo("");
+    }
+
+    @Test
+    public void mergeBaseTest() throws Exception {
+        repository.write("a/pom.xml", "a2");
+        repository.commitAll("change a");
+
+        // a change on the base branch after the current branch diverged from it
+        repository.getGit().checkout().setName("base").call();
+        repository.write("b/pom.xml", "b2");
+        repository.commitAll("change b");
+        repository.getGit().checkout().setName("master").call();
+
+        assertThat(ChangedPaths.find(repository.getDirectory(), "base", true, false, GitOptions.DEFAULTS, log).getPaths()).containsOnly("a/pom.xml");
+        assertThat(ChangedPaths.find(repository.getDirectory(), "base", false, false, GitOptions.DEFAULTS, log).getPaths()).containsOnly("a/pom.xml", "b/pom.xml");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownBaseTest() throws Exception {
+        ChangedPaths.find(repository.getDirectory(), "does-not-exist", true, true, GitOptions.DEFAULTS, log);
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommitCounterTest {
+
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    private int time = 1500000000;
+
+    @Test
+    public void countTest() throws Exception {
+        ObjectId c1 = commit();
+        ObjectId c2 = commit(c1);
+        ObjectId c3 = commit(c2);
+        ObjectId s1 = commit(c2);
+        ObjectId s2 = commit(s1);
+        ObjectId merge = commit(c3, s2);
+
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            assertThat(counter.count(c1)).isEqualTo(1);
+            assertThat(counter.count(c3)).isEqualTo(3);
+            assertThat(counter.count(merge)).isEqualTo(6);
+        }
+    }
+
+    @Test
+    public void incrementalCountTest() throws Exception {
+        ObjectId c1 = commit();
+        ObjectId c2 = commit(c1);
+        ObjectId c3 = commit(c2);
+
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            assertThat(counter.count(c3)).isEqualTo(3);
+        }
+
+        ObjectId s1 = commit(c2);
+        ObjectId merge = commit(c3, s1);
+        ObjectId c4 = commit(merge);
+
+        // counted from the cached count of c3
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            assertThat(counter.count(c4)).isEqualTo(6);
+        }
+
+        // s1 isn't a descendant of any cached commit
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            assertThat(counter.count(s1)).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void nearestTagTest() throws Exception {
+        ObjectId c1 = commit();
+        ObjectId c2 = commit(c1);
+        ObjectId c3 = commit(c2);
+        ObjectId s1 = commit(c2);
+        ObjectId s2 = commit(s1);
+        ObjectId merge = commit(c3, s2);
+
+        Map<ObjectId, String> tags = new HashMap<>();
+
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            assertThat(counter.nearestTag(merge, tags, UNLIMITED, UNLIMITED)).isNull();
+
+            tags.put(c2, "v1");
+            assertThat(counter.nearestTag(merge, tags, UNLIMITED, UNLIMITED)).isEqualTo(new CommitCounter.TagDistance("v1", c2, 4));
+
+            tags.put(s1, "v2");
+            assertThat(counter.nearestTag(merge, tags, UNLIMITED, UNLIMITED)).isEqualTo(new CommitCounter.TagDistance("v2", s1, 3));
+            assertThat(counter.nearestTag(s1, tags, UNLIMITED, UNLIMITED)).isEqualTo(new CommitCounter.TagDistance("v2", s1, 0));
+            assertThat(counter.nearestTag(c1, tags, UNLIMITED, UNLIMITED)).isNull();
+        }
+    }
+
+    @Test
+    public void nearestTagLimitsTest() throws Exception {
+        ObjectId c1 = commit();
+        ObjectId c2 = commit(c1);
+        ObjectId c3 = commit(c2);
+        ObjectId s1 = commit(c2);
+        ObjectId s2 = commit(s1);
+        ObjectId merge = commit(c3, s2);
+
+        Map<ObjectId, String> tags = new HashMap<>();
+        tags.put(c2, "v1");
+        tags.put(s1, "v2");
+
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            // v1 is found first, since it's fewer parent hops away
+            assertThat(counter.nearestTag(merge, tags, UNLIMITED, 1)).isEqualTo(new CommitCounter.TagDistance("v1", c2, 4));
+            assertThat(counter.nearestTag(merge, tags, 2, UNLIMITED)).isNull();
+            assertThat(counter.nearestTag(s1, tags, 1, 1)).isEqualTo(new CommitCounter.TagDistance("v2", s1, 0));
+        }
+    }
+
+    @Test
+    public void divergenceTest() throws Exception {
+        ObjectId c1 = commit();
+        ObjectId c2 = commit(c1);
+        ObjectId c3 = commit(c2);
+        ObjectId s1 = commit(c2);
+        ObjectId s2 = commit(s1);
+        ObjectId merge = commit(c3, s2);
+
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            assertThat(counter.divergence(c3, s2, UNLIMITED)).isEqualTo(new CommitCounter.Divergence(1L, 2L));
+            assertThat(counter.divergence(s2, c3, UNLIMITED)).isEqualTo(new CommitCounter.Divergence(2L, 1L));
+            assertThat(counter.divergence(merge, c3, UNLIMITED)).isEqualTo(new CommitCounter.Divergence(3L, 0L));
+            assertThat(counter.divergence(c1, merge, UNLIMITED)).isEqualTo(new CommitCounter.Divergence(0L, 5L));
+            assertThat(counter.divergence(c2, c2, UNLIMITED)).isEqualTo(new CommitCounter.Divergence(0L, 0L));
+        }
+    }
+
+    @Test
+    public void divergenceLimitTest() throws Exception {
+        ObjectId c1 = commit();
+        ObjectId c2 = commit(c1);
+        ObjectId c3 = commit(c2);
+        ObjectId s1 = commit(c2);
+        ObjectId s2 = commit(s1);
+
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            // s2, s1 and c3 need to be visited to find that c2 is reachable from both
+            assertThat(counter.divergence(c3, s2, 3)).isEqualTo(new CommitCounter.Divergence(1L, 2L));
+            assertThat(counter.divergence(c3, s2, 2)).isEqualTo(new CommitCounter.Divergence(null, null));
+        }
+    }
+
+    @Test
+    public void commitGraphTest() throws Exception {
+        ObjectId c1 = commit();
+        ObjectId c2 = commit(c1);
+        ObjectId s1 = commit(c1);
+        ObjectId s2 = commit(c1);
+        ObjectId octopus = commit(c2, s1, s2);
+
+        RefUpdate update = repository.getRepository().updateRef(Constants.R_HEADS + Constants.MASTER);
+        update.setNewObjectId(octopus);
+        update.forceUpdate();
+
+        Assume.assumeTrue("git is required to write a commit-graph", writeCommitGraph());
+
+        ObjectId after = commit(octopus);
+
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            assertThat(counter.count(octopus)).isEqualTo(5);
+            assertThat(counter.count(after)).isEqualTo(6);
+
+            Map<ObjectId, String> tags = new HashMap<>();
+            tags.put(c1, "v1");
+            assertThat(counter.nearestTag(after, tags, UNLIMITED, UNLIMITED)).isEqualTo(new CommitCounter.TagDistance("v1", c1, 5));
+
+            assertThat(counter.divergence(after, s1, UNLIMITED)).isEqualTo(new CommitCounter.Divergence(4L, 0L));
+            assertThat(counter.divergence(c2, s2, UNLIMITED)).isEqualTo(new CommitCounter.Divergence(1L, 1L));
+        }
+
+        // re-uses the layers read by the previous counter
+        try (CommitCounter counter = CommitCounter.create(repository.getRepository(), log)) {
+            assertThat(counter.count(after)).isEqualTo(6);
+            assertThat(counter.divergence(c2, s2, UNLIMITED)).isEqualTo(new CommitCounter.Divergence(1L, 1L));
+        }
+
+        // the commit-graph is used instead of the cache
+        assertThat(new File(repository.getRepository().getDirectory(), "scm-metadata-maven-plugin/commit-counts")).doesNotExist();
+    }
+
+    private boolean writeCommitGraph() throws InterruptedException {
+        try {
+            Process process = new ProcessBuilder("git", "commit-graph", "write", "--reachable")
+                .directory(repository.getDirectory())
+                .redirectErrorStream(true)
+                .start();
+
+            process.getOutputStream().close();
+
+            while (process.getInputStream().read() >= 0) {
+                // discard output
+            }
+
+            return process.waitFor() == 0 && new File(repository.getRepository().getDirectory(), "objects/info/commit-graph").isFile();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private ObjectId commit(ObjectId... parents) throws IOException {
+        try (ObjectInserter inserter = repository.getRepository().newObjectInserter()) {
+            PersonIdent ident = new PersonIdent("Test", "test@example.com", (time++) * 1000L, 0);
+
+            CommitBuilder builder = new CommitBuilder();
+            builder.setTreeId(inserter.insert(new TreeFormatter()));
+            builder.setParentIds(parents);
+            builder.setAuthor(ident);
+            builder.setCommitter(ident);
+            builder.setMessage(String.format("commit %d", time));
+
+            ObjectId id = inserter.insert(builder);
+            inserter.flush();
+            return id;
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContentHashCacheTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    private final ObjectId one = ObjectId.fromString("0123456789abcdef0123456789abcdef01234567");
+
+    private final ObjectId two = ObjectId.fromString("89abcdef0123456789abcdef0123456789abcdef");
+
+    private final ObjectId conversion = ObjectId.fromString("fedcba9876543210fedcba9876543210fedcba98");
+
+    private final ObjectId otherConversion = ObjectId.fromString("76543210fedcba9876543210fedcba9876543210");
+
+    private File gitDir;
+
+    @Before
+    public void setup() {
+        gitDir = repository.getRepository().getDirectory();
+    }
+
+    @Test
+    public void emptyCacheTest() {
+        assertThat(ContentHashCache.load(gitDir, log).lookup("foo", 1, 2, 3, conversion)).isNull();
+    }
+
+    @Test
+    public void roundTripTest() {
+        ContentHashCache cache = ContentHashCache.load(gitDir, log);
+        cache.record("b/file.txt", 10, 20, 30, conversion, one);
+        cache.record("a/file.txt", 11, 21, 31, conversion, two);
+        cache.save(log);
+
+        ContentHashCache loaded = ContentHashCache.load(gitDir, log);
+        assertThat(loaded.lookup("b/file.txt", 10, 20, 30, conversion)).isEqualTo(one);
+        assertThat(loaded.lookup("a/file.txt", 11, 21, 31, conversion)).isEqualTo(two);
+        assertThat(loaded.lookup("c/file.txt", 11, 21, 31, conversion)).isNull();
+    }
+
+    @Test
+    public void statMismatchTest() {
+        ContentHashCache cache = ContentHashCache.load(gitDir, log);
+        cache.record("file.txt", 10, 20, 30, conversion, one);
+        cache.save(log);
+
+        ContentHashCache loaded = ContentHashCache.load(gitDir, log);
+        assertThat(loaded.lookup("file.txt", 99, 20, 30, conversion)).isNull();
+        assertThat(loaded.lookup("file.txt", 10, 99, 30, conversion)).isNull();
+        assertThat(loaded.lookup("file.txt", 10, 20, 99, conversion)).isNull();
+        assertThat(loaded.lookup("file.txt", 10, 20, 30, otherConversion)).isNull();
+    }
+
+    @Test
+    public void unusedEntriesArePrunedTest() {
+        ContentHashCache cache = ContentHashCache.load(gitDir, log);
+        cache.record("used.txt", 10, 20, 30, conversion, one);
+        cache.record("unused.txt", 10, 20, 30, conversion, two);
+        cache.save(log);
+
+        ContentHashCache second = ContentHashCache.load(gitDir, log);
+        assertThat(second.lookup("used.txt", 10, 20, 30, conversion)).isEqualTo(one);
+        second.save(log);
+
+        ContentHashCache third = ContentHashCache.load(gitDir, log);
+        assertThat(third.lookup("used.txt", 10, 20, 30, conversion)).isEqualTo(one);
+        assertThat(third.lookup("unused.txt", 10, 20, 30, conversion)).isNull();
+    }
+
+    @Test
+    public void corruptCacheTest() throws Exception {
+        File file = new File(gitDir, "scm-metadata-maven-plugin/content-hash-cache");
+        FileUtils.writeStringToFile(file, "not a cache", StandardCharsets.UTF_8);
+
+        assertThat(ContentHashCache.load(gitDir, log).lookup("file.txt", 10, 20, 30, conversion)).isNull();
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileSignatureTest {
+
+    private static final String REF = "0123456789012345678901234567890123456789\n";
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    @Test
+    public void replacedFileTest() throws Exception {
+        File ref = repository.write("ref", REF);
+        FileSignature before = FileSignature.of(ref);
+
+        Assume.assumeTrue("the file system must provide file keys", before.getFileKey() != null);
+
+        // replaced the way git updates a ref, with the same size and modification time
+        File lock = repository.write("ref.lock", REF.replace('0', 'f'));
+        assertThat(lock.setLastModified(before.getLastModified())).isTrue();
+        Files.move(lock.toPath(), ref.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        FileSignature after = FileSignature.of(ref);
+
+        assertThat(after.getLastModified()).isEqualTo(before.getLastModified());
+        assertThat(after.getLength()).isEqualTo(before.getLength());
+        assertThat(after).isNotEqualTo(before);
+    }
+
+    @Test
+    public void racyTest() {
+        File ref = repository.file("ref");
+        long time = System.currentTimeMillis();
+
+        assertThat(FileSignature.isRacy(Collections.singletonList(new FileSignature(ref, time - 1000, 41, null)), time)).isTrue();
+        assertThat(FileSignature.isRacy(Collections.singletonList(new FileSignature(ref, time - 60000, 41, null)), time)).isFalse();
+
+        // a change to the file key would be detected
+        assertThat(FileSignature.isRacy(Collections.singletonList(new FileSignature(ref, time - 1000, 41, "key")), time)).isFalse();
+
+        // missing
+        assertThat(FileSignature.isRacy(Collections.singletonList(new FileSignature(ref, -1, -1, null)), time)).isFalse();
+    }
+
+}
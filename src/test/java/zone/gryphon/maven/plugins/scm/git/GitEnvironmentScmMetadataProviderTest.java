@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GitEnvironmentScmMetadataProviderTest {
+
+    private static final String URL = "https://github.com/gryphon-zone/scm-metadata-maven-plugin.git";
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    private final Map<String, String> environment = new HashMap<>();
+
+    private String head;
+
+    @Before
+    public void setup() throws Exception {
+        repository.write("pom.xml", "root");
+        head = repository.commitAll("first").name();
+
+        // CI servers usually check out a detached HEAD
+        repository.getGit().checkout().setName(head).call();
+    }
+
+    @Test
+    public void jenkinsTest() throws Exception {
+        environment.put("GIT_COMMIT", head);
+        environment.put("GIT_BRANCH", "origin/feature");
+
+        ScmMetadata metadata = generate(GitOptions.DEFAULTS);
+
+        assertThat(metadata.getRevision()).isEqualTo(head);
+        assertThat(metadata.getBranch()).isEqualTo("feature");
+        assertThat(metadata.getUncommittedChangesPresent()).isFalse();
+        assertThat(metadata.getRemotePathSegments()).containsExactly("gryphon-zone", "scm-metadata-maven-plugin");
+
+        repository.write("pom.xml", "modified");
+        assertThat(generate(GitOptions.DEFAULTS).getUncommittedChangesPresent()).isTrue();
+
+        // the status isn't calculated
+        assertThat(generate(GitOptions.builder().environmentAssumeClean(true).build()).getUncommittedChangesPresent()).isFalse();
+    }
+
+    @Test
+    public void githubTest() throws Exception {
+        environment.put("GITHUB_SHA", head.toUpperCase());
+        environment.put("GITHUB_HEAD_REF", "");
+        environment.put("GITHUB_REF", "refs/heads/main");
+
+        ScmMetadata metadata = generate(GitOptions.DEFAULTS);
+
+        assertThat(metadata.getRevision()).isEqualTo(head);
+        assertThat(metadata.getBranch()).isEqualTo("main");
+    }
+
+    @Test
+    public void notABranchTest() throws Exception {
+        environment.put("GITHUB_SHA", head);
+        environment.put("GITHUB_REF", "refs/pull/1/merge");
+
+        // HEAD is detached, so there's no branch
+        assertThat(generate(GitOptions.DEFAULTS).getBranch()).isEqualTo(head);
+    }
+
+    @Test
+    public void fallbackTest() throws Exception {
+        assertThat(generate(GitOptions.DEFAULTS)).isNull();
+
+        environment.put("GIT_COMMIT", "not a commit");
+        assertThat(generate(GitOptions.DEFAULTS)).isNull();
+
+        // set for a different checkout
+        environment.put("GIT_COMMIT", "0123456789abcdef0123456789abcdef01234567");
+        assertThat(generate(GitOptions.DEFAULTS)).isNull();
+    }
+
+    private ScmMetadata generate(GitOptions options) {
+        return new GitEnvironmentScmMetadataProvider(options, environment).generate(repository.getDirectory(), URL, log);
+    }
+
+}
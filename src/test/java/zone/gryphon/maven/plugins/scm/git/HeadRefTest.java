@@ -0,0 +1,131 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HeadRefTest {
+
+    private static final ObjectId ONE = ObjectId.fromString("0123456789abcdef0123456789abcdef01234567");
+
+    private static final ObjectId TWO = ObjectId.fromString("89abcdef0123456789abcdef0123456789abcdef");
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    private File gitDir;
+
+    @Before
+    public void setup() {
+        gitDir = repository.getRepository().getDirectory();
+    }
+
+    @Test
+    public void looseRefTest() throws Exception {
+        write("HEAD", "ref: refs/heads/feature/foo\n");
+        write("refs/heads/feature/foo", ONE.name() + "\n");
+        write("packed-refs", "# pack-refs with: peeled fully-peeled sorted \n" + TWO.name() + " refs/heads/feature/foo\n");
+
+        // loose refs take precedence over packed refs
+        assertThat(HeadRef.resolve(gitDir, log)).isEqualTo(new HeadRef(ONE.name(), "refs/heads/feature/foo"));
+        assertThat(HeadRef.resolve(gitDir, log).branch()).isEqualTo("feature/foo");
+    }
+
+    @Test
+    public void packedRefTest() throws Exception {
+        write("HEAD", "ref: refs/heads/master\n");
+        write("packed-refs", "# pack-refs with: peeled fully-peeled sorted \n"
+            + ONE.name() + " refs/heads/develop\n"
+            + TWO.name() + " refs/heads/master\n");
+
+        assertThat(HeadRef.resolve(gitDir, log)).isEqualTo(new HeadRef(TWO.name(), "refs/heads/master"));
+    }
+
+    @Test
+    public void unsortedPackedRefTest() throws Exception {
+        write("HEAD", "ref: refs/heads/master\n");
+        write("packed-refs", TWO.name() + " refs/heads/master\n");
+
+        assertThat(HeadRef.resolve(gitDir, log)).isNull();
+    }
+
+    @Test
+    public void detachedTest() throws Exception {
+        write("HEAD", ONE.name() + "\n");
+
+        assertThat(HeadRef.resolve(gitDir, log)).isEqualTo(new HeadRef(ONE.name(), null));
+        assertThat(HeadRef.resolve(gitDir, log).branch()).isEqualTo(ONE.name());
+    }
+
+    @Test
+    public void unbornTest() throws Exception {
+        write("HEAD", "ref: refs/heads/master\n");
+
+        assertThat(HeadRef.resolve(gitDir, log)).isEqualTo(new HeadRef(null, "refs/heads/master"));
+    }
+
+    @Test
+    public void worktreeTest() throws Exception {
+        write("worktrees/other/HEAD", "ref: refs/heads/other\n");
+        write("worktrees/other/commondir", "../..\n");
+        write("refs/heads/other", TWO.name() + "\n");
+
+        assertThat(HeadRef.resolve(new File(gitDir, "worktrees/other"), log)).isEqualTo(new HeadRef(TWO.name(), "refs/heads/other"));
+    }
+
+    @Test
+    public void upperCaseTest() throws Exception {
+        write("HEAD", ONE.name().toUpperCase() + "\n");
+
+        assertThat(HeadRef.resolve(gitDir, log)).isEqualTo(new HeadRef(ONE.name(), null));
+    }
+
+    @Test
+    public void isIdTest() {
+        assertThat(HeadRef.isId(ONE.name())).isTrue();
+        assertThat(HeadRef.isId(ONE.name().toUpperCase())).isTrue();
+        assertThat(HeadRef.isId(ONE.name().substring(1))).isFalse();
+        assertThat(HeadRef.isId(ONE.name().substring(1) + "g")).isFalse();
+        assertThat(HeadRef.isId(null)).isFalse();
+    }
+
+    @Test
+    public void shortenRefNameTest() {
+        assertThat(HeadRef.shortenRefName("refs/heads/feature/foo")).isEqualTo("feature/foo");
+        assertThat(HeadRef.shortenRefName("refs/tags/v1")).isEqualTo("v1");
+        assertThat(HeadRef.shortenRefName("refs/remotes/origin/master")).isEqualTo("origin/master");
+        assertThat(HeadRef.shortenRefName("refs/pull/1/merge")).isEqualTo("refs/pull/1/merge");
+    }
+
+    private void write(String path, String content) throws IOException {
+        repository.write(Constants.DOT_GIT + "/" + path, content);
+    }
+
+}
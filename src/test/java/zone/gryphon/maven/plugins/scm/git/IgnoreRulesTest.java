@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.IndexDiff;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IgnoreRulesTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    @Before
+    public void setup() throws Exception {
+        repository.write(".gitignore", "*.log\n!keep.log\n/build/\ndocs/*.tmp\ntarget/\n");
+        repository.write("sub/.gitignore", "local.txt\n!important.log\n/anchored.txt\n");
+        repository.write("sub/deeper/.gitignore", "*\n!*.java\n!.gitignore\n");
+        repository.write(".git/info/exclude", "excluded.txt\n");
+
+        for (String path : new String[]{
+            "plain.txt", "a.log", "keep.log", "build/out.txt", "docs/a.tmp", "docs/a.txt", "target/classes/A.class",
+            "excluded.txt", "sub/excluded.txt", "sub/local.txt", "sub/important.log", "sub/x.log", "sub/anchored.txt",
+            "sub/other/anchored.txt", "sub/docs/a.tmp", "sub/target/x.txt", "sub/deeper/A.java", "sub/deeper/b.txt",
+            "sub/deeper/nested/C.java"
+        }) {
+            repository.write(path, path);
+        }
+    }
+
+    @Test
+    public void matchesJGitTest() throws Exception {
+        Status expected = repository.getGit().status().call();
+        IndexDiff actual = diff();
+
+        assertThat(actual.getUntracked()).isEqualTo(expected.getUntracked());
+        assertThat(actual.getUntrackedFolders()).isEqualTo(expected.getUntrackedFolders());
+        assertThat(actual.getIgnoredNotInIndex()).isEqualTo(expected.getIgnoredNotInIndex());
+    }
+
+    @Test
+    public void modifiedIgnoreFileTest() throws Exception {
+        assertThat(diff().getUntracked()).doesNotContain("sub/local.txt");
+
+        File file = repository.write("sub/.gitignore", "!important.log\n");
+        assertThat(file.setLastModified(file.lastModified() + 10000)).isTrue();
+
+        assertThat(diff().getUntracked()).contains("sub/local.txt");
+        assertThat(diff().getUntracked()).isEqualTo(repository.getGit().status().call().getUntracked());
+    }
+
+    private IndexDiff diff() throws IOException {
+        StatusFileTreeIterator iterator = new StatusFileTreeIterator(repository.getRepository(), null, false, IgnoreRules.create(repository.getRepository()));
+        IndexDiff diff = new IndexDiff(repository.getRepository(), Constants.HEAD, iterator);
+        diff.diff();
+        return diff;
+    }
+
+}
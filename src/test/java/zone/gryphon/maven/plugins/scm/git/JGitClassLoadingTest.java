@@ -0,0 +1,228 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
+import zone.gryphon.maven.plugins.scm.provider.ScmMetadataProvider;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks which JGit classes are loaded when calculating metadata, by running each build in a fresh class loader.
+ * <br><br>
+ * The time taken by a cold build (including loading and initializing every class it uses) is logged,
+ * and can be compared between the HEAD-only and the full build with
+ * <code>mvn test -Dtest=JGitClassLoadingTest</code>.
+ */
+public class JGitClassLoadingTest {
+
+    private static final String URL = "https://github.com/gryphon-zone/scm-metadata-maven-plugin.git";
+
+    private static final String JGIT_PACKAGE = "org.eclipse.jgit.";
+
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    private String head;
+
+    @Before
+    public void setup() throws Exception {
+        repository.write("pom.xml", "root");
+        head = repository.commitAll("first").name();
+    }
+
+    @Test
+    public void headOnlyTest() throws Exception {
+        RecordingClassLoader loader = new RecordingClassLoader();
+        assertThat(run(loader, HeadOnlyBuild.class)).isEqualTo(head);
+        assertThat(loader.loaded(JGIT_PACKAGE)).isEmpty();
+    }
+
+    @Test
+    public void fullTest() throws Exception {
+        RecordingClassLoader loader = new RecordingClassLoader();
+        assertThat(run(loader, FullBuild.class)).isEqualTo(head);
+        assertThat(loader.loaded(JGIT_PACKAGE)).isNotEmpty();
+    }
+
+    @Test
+    public void startupBenchmark() throws Exception {
+        // the first build in each JVM also pays for loading the JDK classes both builds share
+        run(new RecordingClassLoader(), FullBuild.class);
+
+        for (Class<?> build : new Class<?>[]{HeadOnlyBuild.class, FullBuild.class}) {
+            long total = 0;
+            int classes = 0;
+
+            for (int i = 0; i < ITERATIONS; i++) {
+                RecordingClassLoader loader = new RecordingClassLoader();
+                long start = System.nanoTime();
+                run(loader, build);
+                total += System.nanoTime() - start;
+                classes = loader.loaded("").size();
+            }
+
+            log.info(String.format("%s: %d ms per cold build, %d classes loaded",
+                build.getSimpleName(), total / ITERATIONS / 1000000, classes));
+        }
+    }
+
+    private String run(ClassLoader loader, Class<?> build) throws Exception {
+        Class<?> isolated = Class.forName(build.getName(), true, loader);
+
+        @SuppressWarnings("unchecked")
+        Callable<String> callable = (Callable<String>) isolated.getDeclaredConstructor(String.class, String.class)
+            .newInstance(repository.getDirectory().getPath(), head);
+
+        return callable.call();
+    }
+
+    /**
+     * Replicates the provider chain of the {@code metadata} goal with the {@code ENVIRONMENT} backend,
+     * where nothing except the revision and branch is requested
+     */
+    public static class HeadOnlyBuild implements Callable<String> {
+
+        private final File directory;
+
+        private final Map<String, String> environment;
+
+        public HeadOnlyBuild(String directory, String revision) {
+            this.directory = new File(directory);
+            this.environment = Collections.singletonMap("GIT_COMMIT", revision);
+        }
+
+        @Override
+        public String call() throws Exception {
+            GitOptions options = GitOptions.builder()
+                .backend(GitBackend.ENVIRONMENT)
+                .environmentAssumeClean(true)
+                .build();
+
+            List<ScmMetadataProvider> providers = new ArrayList<>();
+            providers.add(new GitEnvironmentScmMetadataProvider(options, environment));
+            providers.add(new GitScmMetadataProvider(options));
+
+            return generate(this, directory, providers);
+        }
+    }
+
+    /**
+     * Replicates the provider chain of the {@code metadata} goal with the default options
+     */
+    public static class FullBuild implements Callable<String> {
+
+        private final File directory;
+
+        public FullBuild(String directory, String revision) {
+            this.directory = new File(directory);
+        }
+
+        @Override
+        public String call() throws Exception {
+            return generate(this, directory, Collections.<ScmMetadataProvider>singletonList(new GitScmMetadataProvider(GitOptions.DEFAULTS)));
+        }
+    }
+
+    private static String generate(Object session, File directory, List<ScmMetadataProvider> providers) throws Exception {
+        Log log = new SystemStreamLog();
+        RepositoryPool.begin(session);
+
+        try {
+            for (ScmMetadataProvider provider : providers) {
+                ScmMetadata metadata = provider.generate(directory, URL, log);
+
+                if (metadata != null) {
+                    return metadata.getRevision();
+                }
+            }
+
+            return null;
+        } finally {
+            RepositoryPool.end(session);
+        }
+    }
+
+    /**
+     * Loads the test classpath without delegating to the application class loader,
+     * recording the name of each class it defines
+     */
+    private static class RecordingClassLoader extends URLClassLoader {
+
+        private final List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+
+        private RecordingClassLoader() throws MalformedURLException {
+            super(classPath(), ClassLoader.getSystemClassLoader().getParent());
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            Class<?> out = super.findClass(name);
+            loaded.add(name);
+            return out;
+        }
+
+        private List<String> loaded(String prefix) {
+            List<String> out = new ArrayList<>();
+
+            synchronized (loaded) {
+                for (String name : loaded) {
+                    if (name.startsWith(prefix)) {
+                        out.add(name);
+                    }
+                }
+            }
+
+            return out;
+        }
+
+        private static URL[] classPath() throws MalformedURLException {
+            // surefire runs tests from a manifest-only jar, but exposes the real class path
+            String classPath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+
+            List<URL> out = new ArrayList<>();
+
+            for (String entry : classPath.split(File.pathSeparator)) {
+                if (!entry.isEmpty()) {
+                    out.add(new File(entry).toURI().toURL());
+                }
+            }
+
+            return out.toArray(new URL[0]);
+        }
+    }
+
+}
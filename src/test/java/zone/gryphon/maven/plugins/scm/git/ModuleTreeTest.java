@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ModuleTreeTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private ObjectId head;
+
+    @Before
+    public void setup() throws Exception {
+        repository.write("pom.xml", "root");
+        repository.write("module/pom.xml", "module");
+        repository.write("module/src/a.txt", "a");
+        repository.write("other/pom.xml", "other");
+
+        head = repository.commitAll("first");
+    }
+
+    @Test
+    public void cleanTest() throws Exception {
+        assertThat(fingerprint("")).isEqualTo(repository.getRepository().resolve("HEAD^{tree}").name());
+        assertThat(fingerprint("module")).isEqualTo(repository.getRepository().resolve("HEAD:module").name());
+        assertThat(fingerprint("module/src")).isEqualTo(repository.getRepository().resolve("HEAD:module/src").name());
+        assertThat(fingerprint("missing")).isEqualTo(ObjectId.zeroId().name());
+    }
+
+    @Test
+    public void dirtyTest() throws Exception {
+        String clean = fingerprint("module");
+
+        repository.write("module/src/a.txt", "b");
+        String modified = fingerprint("module", "module/src/a.txt");
+        assertThat(modified).isNotEqualTo(clean);
+
+        // changes outside of the module are ignored
+        assertThat(fingerprint("module", "module/src/a.txt", "other/pom.xml")).isEqualTo(modified);
+
+        repository.write("module/src/a.txt", "c");
+        assertThat(fingerprint("module", "module/src/a.txt")).isNotEqualTo(modified);
+
+        FileUtils.forceDelete(repository.file("module/src/a.txt"));
+        String deleted = fingerprint("module", "module/src/a.txt");
+        assertThat(deleted).isNotEqualTo(clean).isNotEqualTo(modified);
+
+        // untracked directories are reported without listing their contents
+        repository.write("module/new/b.txt", "b");
+        String untracked = fingerprint("module", "module/src/a.txt", "module/new/");
+        repository.write("module/new/b.txt", "c");
+        assertThat(fingerprint("module", "module/src/a.txt", "module/new/")).isNotEqualTo(untracked).isNotEqualTo(deleted);
+    }
+
+    @Test
+    public void relativePathTest() throws Exception {
+        assertThat(AbstractGitScmMetadataProvider.relativePath(repository.getDirectory(), repository.getDirectory())).isEqualTo("");
+        assertThat(AbstractGitScmMetadataProvider.relativePath(repository.getDirectory(), repository.file("module/src"))).isEqualTo("module/src");
+        assertThat(AbstractGitScmMetadataProvider.relativePath(repository.getDirectory(), repository.getDirectory().getParentFile())).isNull();
+    }
+
+    private String fingerprint(String path, String... changed) throws IOException {
+        return ModuleTree.fingerprint(repository.getRepository(), head, path, changed.length == 0 ? Collections.<String>emptySet() : Arrays.asList(changed));
+    }
+
+}
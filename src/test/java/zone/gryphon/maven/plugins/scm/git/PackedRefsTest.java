@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PackedRefsTest {
+
+    private static final String SORTED_HEADER = "# pack-refs with: peeled fully-peeled sorted \n";
+
+    private File file;
+
+    @Before
+    public void setup() {
+        file = new File(new File("target", "testing"), UUID.randomUUID().toString() + "-packed-refs").getAbsoluteFile();
+    }
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(file);
+    }
+
+    @Test
+    public void findTest() throws Exception {
+        List<String> names = new ArrayList<>();
+
+        StringBuilder content = new StringBuilder(SORTED_HEADER);
+
+        for (int i = 0; i < 1000; i++) {
+            String name = String.format("refs/changes/%03d/%d/1", i % 100, i);
+            names.add(name);
+        }
+
+        Collections.sort(names);
+
+        for (int i = 0; i < names.size(); i++) {
+            content.append(id(i).name()).append(' ').append(names.get(i)).append('\n');
+
+            // every third ref is an annotated tag
+            if (i % 3 == 0) {
+                content.append('^').append(id(i + 100000).name()).append('\n');
+            }
+        }
+
+        FileUtils.writeStringToFile(file, content.toString(), StandardCharsets.UTF_8);
+
+        PackedRefs refs = PackedRefs.open(file);
+
+        for (int i = 0; i < names.size(); i++) {
+            assertThat(refs.find(names.get(i))).isEqualTo(id(i).name());
+        }
+
+        assertThat(refs.find("refs/changes")).isNull();
+        assertThat(refs.find("refs/changes/000/0/2")).isNull();
+        assertThat(refs.find("refs/heads/master")).isNull();
+        assertThat(refs.find("HEAD")).isNull();
+    }
+
+    @Test
+    public void missingFileTest() throws Exception {
+        assertThat(PackedRefs.open(file).find("refs/heads/master")).isNull();
+    }
+
+    @Test
+    public void unsortedTest() throws Exception {
+        FileUtils.writeStringToFile(file, "# pack-refs with: peeled fully-peeled \n" + id(1).name() + " refs/heads/master\n", StandardCharsets.UTF_8);
+        assertThat(PackedRefs.open(file)).isNull();
+
+        FileUtils.writeStringToFile(file, id(1).name() + " refs/heads/master\n", StandardCharsets.UTF_8);
+        assertThat(PackedRefs.open(file)).isNull();
+    }
+
+    @Test
+    public void reuseTest() throws Exception {
+        FileUtils.writeStringToFile(file, SORTED_HEADER + id(1).name() + " refs/heads/master\n", StandardCharsets.UTF_8);
+        PackedRefs first = PackedRefs.open(file);
+
+        assertThat(PackedRefs.open(file)).isSameAs(first);
+
+        // replaced the way git updates the file
+        File lock = new File(file.getPath() + ".lock");
+        FileUtils.writeStringToFile(lock, SORTED_HEADER + id(2).name() + " refs/heads/master\n", StandardCharsets.UTF_8);
+        Files.move(lock.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        assertThat(PackedRefs.open(file).find("refs/heads/master")).isEqualTo(id(2).name());
+    }
+
+    private static ObjectId id(int value) {
+        return ObjectId.fromString(String.format("%040x", value));
+    }
+
+}
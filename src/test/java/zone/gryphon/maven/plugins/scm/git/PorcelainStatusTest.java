@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PorcelainStatusTest {
+
+    private static final String REVISION = "574eabbb516259eedbdc2ff74b98508c97465734";
+
+    private static final String BLOB = "0cfbf08886fca9a91cb753ec8734c84fcbe52c9f";
+
+    private PorcelainStatus parse(String... records) throws IOException {
+        StringBuilder builder = new StringBuilder();
+
+        for (String record : records) {
+            builder.append(record).append('\0');
+        }
+
+        return PorcelainStatus.parse(new ByteArrayInputStream(builder.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void cleanTest() throws Exception {
+        PorcelainStatus status = parse("# branch.oid " + REVISION, "# branch.head master");
+
+        assertThat(status.getRevision()).isEqualTo(REVISION);
+        assertThat(status.getBranch()).isEqualTo("master");
+        assertThat(status.getUncommitted()).isEmpty();
+        assertThat(status.getUntracked()).isEmpty();
+    }
+
+    @Test
+    public void detachedTest() throws Exception {
+        PorcelainStatus status = parse("# branch.oid " + REVISION, "# branch.head (detached)");
+
+        assertThat(status.getRevision()).isEqualTo(REVISION);
+        assertThat(status.getBranch()).isNull();
+    }
+
+    @Test
+    public void initialTest() throws Exception {
+        PorcelainStatus status = parse("# branch.oid (initial)", "# branch.head master");
+
+        assertThat(status.getRevision()).isNull();
+    }
+
+    @Test
+    public void changesTest() throws Exception {
+        PorcelainStatus status = parse(
+            "# branch.oid " + REVISION,
+            "# branch.head feature/foo",
+            "# branch.upstream origin/feature/foo",
+            "# branch.ab +1 -0",
+            "1 .M N... 100644 100644 100644 " + BLOB + " " + BLOB + " modified file.txt",
+            "2 R. N... 100644 100644 100644 " + BLOB + " " + BLOB + " R100 new name.txt",
+            "old name.txt",
+            "u UU N... 100644 100644 100644 100644 " + BLOB + " " + BLOB + " " + BLOB + " conflict.txt",
+            "? untracked dir/file.txt",
+            "! ignored.txt"
+        );
+
+        assertThat(status.getBranch()).isEqualTo("feature/foo");
+        assertThat(status.getUncommitted()).containsOnly("modified file.txt", "new name.txt", "old name.txt", "conflict.txt");
+        assertThat(status.getUntracked()).containsOnly("untracked dir/file.txt");
+    }
+
+    @Test(expected = IOException.class)
+    public void missingRevisionTest() throws Exception {
+        parse("1 .M N... 100644 100644 100644 " + BLOB + " " + BLOB + " file.txt");
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedEntryTest() throws Exception {
+        parse("# branch.oid " + REVISION, "1 .M N...");
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.eclipse.jgit.lib.Repository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RepositoryPoolTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Object session = new Object();
+
+    private File gitDir;
+
+    @Before
+    public void setup() throws Exception {
+        gitDir = repository.getRepository().getDirectory();
+    }
+
+    @After
+    public void cleanup() {
+        RepositoryPool.end(session);
+    }
+
+    @Test
+    public void pooledTest() throws Exception {
+        RepositoryPool.begin(session);
+
+        Repository first;
+        Repository second;
+
+        try (Repository repo = RepositoryPool.open(gitDir)) {
+            first = repo;
+        }
+
+        try (Repository repo = RepositoryPool.open(gitDir)) {
+            second = repo;
+        }
+
+        assertThat(second).isSameAs(first);
+
+        // a new session gets new repositories
+        Object next = new Object();
+        RepositoryPool.begin(next);
+
+        try (Repository repo = RepositoryPool.open(gitDir)) {
+            assertThat(repo).isNotSameAs(first);
+        }
+
+        RepositoryPool.end(next);
+    }
+
+    @Test
+    public void unpooledTest() throws Exception {
+        RepositoryPool.begin(session);
+        RepositoryPool.end(session);
+
+        try (Repository first = RepositoryPool.open(gitDir); Repository second = RepositoryPool.open(gitDir)) {
+            assertThat(second).isNotSameAs(first);
+        }
+    }
+
+    @Test
+    public void releaseTest() throws Exception {
+        List<String> projects = Arrays.asList("a", "b");
+        RepositoryPool.begin(session);
+        RepositoryPool.release(session, "a", projects);
+
+        try (Repository first = RepositoryPool.open(gitDir); Repository second = RepositoryPool.open(gitDir)) {
+            assertThat(second).isSameAs(first);
+        }
+
+        RepositoryPool.release(session, "b", projects);
+
+        try (Repository first = RepositoryPool.open(gitDir); Repository second = RepositoryPool.open(gitDir)) {
+            assertThat(second).isNotSameAs(first);
+        }
+
+        // a released session isn't pooled for again
+        RepositoryPool.begin(session);
+
+        try (Repository first = RepositoryPool.open(gitDir); Repository second = RepositoryPool.open(gitDir)) {
+            assertThat(second).isNotSameAs(first);
+        }
+    }
+
+    @Test
+    public void endOtherSessionTest() throws Exception {
+        RepositoryPool.begin(session);
+        RepositoryPool.end(new Object());
+
+        try (Repository first = RepositoryPool.open(gitDir); Repository second = RepositoryPool.open(gitDir)) {
+            assertThat(second).isSameAs(first);
+        }
+    }
+
+}
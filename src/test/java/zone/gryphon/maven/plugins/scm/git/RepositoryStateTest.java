@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RepositoryStateTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    @Before
+    public void setup() throws Exception {
+        repository.write("pom.xml", "root");
+        repository.commitAll("first");
+    }
+
+    @Test
+    public void unchangedTest() throws Exception {
+        assertThat(RepositoryState.of(repository.file("module"))).isEqualTo(RepositoryState.of(repository.getDirectory()));
+
+        // changes which haven't been added to the index aren't detected
+        RepositoryState before = RepositoryState.of(repository.getDirectory());
+        repository.write("pom.xml", "modified");
+        assertThat(RepositoryState.of(repository.getDirectory())).isEqualTo(before);
+    }
+
+    @Test
+    public void changedTest() throws Exception {
+        RepositoryState initial = RepositoryState.of(repository.getDirectory());
+
+        repository.getGit().branchCreate().setName("feature").call();
+        RepositoryState branched = RepositoryState.of(repository.getDirectory());
+        assertThat(branched).isNotEqualTo(initial);
+
+        repository.write("new.txt", "added");
+        repository.getGit().add().addFilepattern("new.txt").call();
+        assertThat(RepositoryState.of(repository.getDirectory())).isNotEqualTo(branched);
+    }
+
+    @Test
+    public void notARepositoryTest() throws Exception {
+        assertThat(RepositoryState.of(new File("/"))).isNull();
+    }
+
+}
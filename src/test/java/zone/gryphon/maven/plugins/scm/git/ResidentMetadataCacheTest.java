@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResidentMetadataCacheTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Callable<ScmMetadata> loader = new Callable<ScmMetadata>() {
+
+        @Override
+        public ScmMetadata call() {
+            return ScmMetadata.builder()
+                .revision(Integer.toString(loads.incrementAndGet()))
+                .branch("master")
+                .uncommittedChangesPresent(false)
+                .remotePathSegments(Collections.<String>emptyList())
+                .build();
+        }
+
+    };
+
+    @Before
+    public void setup() throws Exception {
+        repository.write(".gitignore", "target/\n");
+        repository.write("pom.xml", "root");
+        repository.write("target/output.txt", "output");
+        repository.commitAll("first");
+    }
+
+    @Test
+    public void repositoryChangeTest() throws Exception {
+        assertThat(get(false)).isEqualTo("1");
+        assertThat(get(false)).isEqualTo("1");
+
+        // different configurations are cached separately
+        assertThat(ResidentMetadataCache.get(repository.getDirectory(), "other", false, loader, log).getRevision()).isEqualTo("2");
+        assertThat(get(false)).isEqualTo("1");
+
+        repository.write("new.txt", "new");
+        assertThat(get(false)).isEqualTo("1");
+
+        repository.getGit().add().addFilepattern("new.txt").call();
+        assertThat(get(false)).isEqualTo("3");
+    }
+
+    @Test
+    public void workingTreeChangeTest() throws Exception {
+        assertThat(get(true)).isEqualTo("1");
+
+        // ignored
+        repository.write("target/output.txt", "changed");
+        Thread.sleep(500);
+        assertThat(get(true)).isEqualTo("1");
+
+        repository.write("pom.xml", "changed");
+
+        long deadline = System.currentTimeMillis() + 30000;
+
+        // events are delivered asynchronously
+        while (get(true).equals("1") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertThat(get(true)).isEqualTo("2");
+    }
+
+    private String get(boolean watchWorkingTree) throws Exception {
+        return ResidentMetadataCache.get(repository.getDirectory(), "configuration", watchWorkingTree, loader, log).getRevision();
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShortRevisionTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    /**
+     * Two objects whose ids share the same 4 character prefix
+     */
+    private ObjectId[] collision;
+
+    @Before
+    public void setup() throws Exception {
+        Map<String, ObjectId> prefixes = new HashMap<>();
+        Map<String, ObjectId> files = new TreeMap<>();
+
+        try (ObjectInserter inserter = repository.getRepository().newObjectInserter()) {
+            for (int i = 0; collision == null; i++) {
+                ObjectId id = inserter.insert(Constants.OBJ_BLOB, Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+                ObjectId existing = prefixes.put(id.name().substring(0, 4), id);
+                files.put(Integer.toString(i), id);
+
+                if (existing != null) {
+                    collision = new ObjectId[]{existing, id};
+                }
+            }
+
+            // make the objects reachable, so they're packed by gc
+            TreeFormatter tree = new TreeFormatter();
+
+            for (Map.Entry<String, ObjectId> file : files.entrySet()) {
+                tree.append(file.getKey(), FileMode.REGULAR_FILE, file.getValue());
+            }
+
+            PersonIdent ident = new PersonIdent("Test", "test@example.com");
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(inserter.insert(tree));
+            commit.setAuthor(ident);
+            commit.setCommitter(ident);
+            commit.setMessage("blobs");
+
+            RefUpdate update = repository.getRepository().updateRef(Constants.HEAD);
+            update.setNewObjectId(inserter.insert(commit));
+            inserter.flush();
+            update.forceUpdate();
+        }
+    }
+
+    @Test
+    public void looseObjectsTest() throws Exception {
+        verify();
+    }
+
+    @Test
+    public void packedObjectsTest() throws Exception {
+        repository.getGit().gc().call();
+        assertThat(new File(repository.getRepository().getDirectory(), "objects/" + collision[0].name().substring(0, 2))).doesNotExist();
+        verify();
+    }
+
+    private void verify() throws Exception {
+        try (ObjectReader reader = repository.getRepository().newObjectReader()) {
+            for (ObjectId id : collision) {
+                String abbreviation = OptionalMetadata.shortRevision(reader, id, 4);
+
+                assertThat(abbreviation.length()).isGreaterThan(4);
+                assertThat(id.name()).startsWith(abbreviation);
+                assertThat(reader.resolve(id.abbreviate(abbreviation.length()))).containsExactly(id);
+            }
+
+            assertThat(OptionalMetadata.shortRevision(reader, collision[0], 12)).isEqualTo(collision[0].name().substring(0, 12));
+            assertThat(OptionalMetadata.shortRevision(reader, collision[0], 50)).isEqualTo(collision[0].name());
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SignatureCacheTest {
+
+    private static final File KEY = new File("key");
+
+    private final SignatureCache<String> cache = SignatureCache.create();
+
+    private final long time = System.currentTimeMillis();
+
+    private final List<FileSignature> signatures = signatures(time - 60000, "key");
+
+    private final Object session = new Object();
+
+    @After
+    public void cleanup() {
+        RepositoryPool.end(session);
+    }
+
+    @Test
+    public void reuseTest() {
+        assertThat(cache.get(KEY, signatures)).isNull();
+
+        cache.put(KEY, signatures, time, "value");
+
+        assertThat(cache.get(KEY, signatures(time - 60000, "key"))).isEqualTo("value");
+        assertThat(cache.get(new File("other"), signatures)).isNull();
+
+        // replaced
+        assertThat(cache.get(KEY, signatures(time - 60000, "other"))).isNull();
+    }
+
+    @Test
+    public void racyTest() {
+        cache.put(KEY, signatures, time, "value");
+
+        List<FileSignature> racy = signatures(time - 1000, null);
+        cache.put(KEY, racy, time, "racy");
+
+        assertThat(cache.get(KEY, racy)).isNull();
+        assertThat(cache.get(KEY, signatures)).isNull();
+    }
+
+    @Test
+    public void clearedBySessionTest() {
+        cache.put(KEY, signatures, time, "value");
+        RepositoryPool.begin(session);
+
+        assertThat(cache.get(KEY, signatures)).isNull();
+
+        cache.put(KEY, signatures, time, "value");
+        RepositoryPool.end(session);
+
+        assertThat(cache.get(KEY, signatures)).isNull();
+    }
+
+    private static List<FileSignature> signatures(long lastModified, Object fileKey) {
+        return Collections.singletonList(new FileSignature(new File("ref"), lastModified, 41, fileKey));
+    }
+
+}
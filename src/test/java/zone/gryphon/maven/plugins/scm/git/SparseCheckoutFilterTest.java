@@ -0,0 +1,110 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SparseCheckoutFilterTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final SparseCheckoutFilter filter = SparseCheckoutFilter.parse(Arrays.asList(
+        "/*",
+        "!/*/",
+        "/alpha/",
+        "!/alpha/*/",
+        "/alpha/bravo/",
+        "",
+        "# comment",
+        "/charlie/"
+    ));
+
+    @Test
+    public void rootFilesTest() {
+        assertThat(filter.includes("pom.xml", false)).isTrue();
+        assertThat(filter.includes("delta", true)).isFalse();
+        assertThat(filter.includes("delta/pom.xml", false)).isFalse();
+    }
+
+    @Test
+    public void recursiveDirectoryTest() {
+        assertThat(filter.includes("charlie", true)).isTrue();
+        assertThat(filter.includes("charlie/pom.xml", false)).isTrue();
+        assertThat(filter.includes("charlie/src/main", true)).isTrue();
+        assertThat(filter.includes("charlie/src/main/Foo.java", false)).isTrue();
+        assertThat(filter.includes("charlie2", true)).isFalse();
+
+        assertThat(filter.includes("alpha/bravo", true)).isTrue();
+        assertThat(filter.includes("alpha/bravo/src/Foo.java", false)).isTrue();
+    }
+
+    @Test
+    public void parentDirectoryTest() {
+        assertThat(filter.includes("alpha", true)).isTrue();
+        assertThat(filter.includes("alpha/pom.xml", false)).isTrue();
+        assertThat(filter.includes("alpha/echo", true)).isFalse();
+        assertThat(filter.includes("alpha/echo/pom.xml", false)).isFalse();
+    }
+
+    @Test
+    public void nonConePatternsTest() {
+        assertThat(SparseCheckoutFilter.parse(Arrays.asList("/*", "*.java"))).isNull();
+        assertThat(SparseCheckoutFilter.parse(Arrays.asList("/*", "/foo/*.xml"))).isNull();
+    }
+
+    @Test
+    public void stagedOutsideOfConeTest() throws Exception {
+        repository.write("inside/a.txt", "a");
+        repository.write("outside/b.txt", "b");
+        repository.write("outside/c.txt", "c");
+        repository.write("pruned/d.txt", "d");
+        repository.commitAll("first");
+
+        Repository repo = repository.getRepository();
+        StoredConfig config = repo.getConfig();
+        config.setBoolean("core", null, "sparseCheckout", true);
+        config.setBoolean("core", null, "sparseCheckoutCone", true);
+        config.save();
+        repository.write(".git/info/sparse-checkout", "/*\n!/*/\n/inside/\n");
+
+        repository.write("inside/a.txt", "modified");
+        repository.write("outside/b.txt", "modified");
+        repository.getGit().add().addFilepattern("outside/b.txt").call();
+        repository.getGit().rm().setCached(true).addFilepattern("outside/c.txt").call();
+
+        // would have the skip-worktree bit set in a real sparse checkout, so it isn't walked
+        repository.write("pruned/d.txt", "modified");
+
+        Status status = new Status(WorkingTreeStatus.diff(repo, repo.resolve(Constants.HEAD), GitOptions.DEFAULTS, new SystemStreamLog()));
+
+        assertThat(status.getModified()).containsOnly("inside/a.txt");
+        assertThat(status.getChanged()).containsOnly("outside/b.txt");
+        assertThat(status.getRemoved()).containsOnly("outside/c.txt");
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StatusFileTreeIteratorTest {
+
+    private static final GitOptions NO_CACHE = GitOptions.builder().contentHashCache(false).build();
+
+    private static final GitOptions CACHE = GitOptions.builder().contentHashCache(true).build();
+
+    private static final GitOptions STAT_ONLY = GitOptions.builder().contentHashCache(false).statOnlyFilteredFiles(true).build();
+
+    private static final GitOptions STAT_ONLY_CACHE = GitOptions.builder().contentHashCache(true).statOnlyFilteredFiles(true).build();
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    /**
+     * A modification time old enough for the cache to record, which differs from the time recorded in the index
+     */
+    private final long touched = (System.currentTimeMillis() / 1000 - 60) * 1000;
+
+    @Test
+    public void touchedFileIsCleanFromCacheTest() throws Exception {
+        repository.write("a.txt", "aaaa");
+        repository.commitAll("first");
+        touch("a.txt");
+
+        // hashes the content, and records it in the cache
+        assertThat(status(CACHE).isClean()).isTrue();
+
+        // the stat information is unchanged, so only hashing the content can tell the files apart
+        repository.write("a.txt", "bbbb");
+        touch("a.txt");
+
+        assertThat(status(CACHE).isClean()).isTrue();
+        assertThat(status(NO_CACHE).getModified()).containsOnly("a.txt");
+    }
+
+    @Test
+    public void conversionChangeInvalidatesCacheTest() throws Exception {
+        setAutoCrLf(true);
+        repository.write("a.txt", "a\r\n");
+        repository.commitAll("first");
+        touch("a.txt");
+
+        // line endings are converted before hashing, so the content matches the committed content
+        assertThat(status(CACHE).isClean()).isTrue();
+
+        // the file's stat information hasn't changed, but the id recorded with conversion no longer applies
+        setAutoCrLf(false);
+        assertThat(status(NO_CACHE).getModified()).containsOnly("a.txt");
+        assertThat(status(CACHE).getModified()).containsOnly("a.txt");
+    }
+
+    @Test
+    public void cachedModificationWithConversionTest() throws Exception {
+        setAutoCrLf(true);
+        repository.write("a.txt", "a\r\n");
+        repository.commitAll("first");
+        repository.write("a.txt", "b\r\n");
+        touch("a.txt");
+
+        assertThat(status(CACHE).getModified()).containsOnly("a.txt");
+
+        // JGit compares the cached id with the converted content of the index when they differ
+        assertThat(status(CACHE).getModified()).containsOnly("a.txt");
+    }
+
+    @Test
+    public void statOnlyTouchedFileWithEolConversionTest() throws Exception {
+        setAutoCrLf(true);
+        repository.write("a.txt", "a\r\n");
+        repository.commitAll("first");
+        touch("a.txt");
+
+        assertTouchedFileStatus();
+    }
+
+    @Test
+    public void statOnlyTouchedFileWithCleanFilterTest() throws Exception {
+        StoredConfig config = repository.getRepository().getConfig();
+        config.setString("filter", "copy", "clean", "cat");
+        config.save();
+
+        repository.write(".gitattributes", "*.txt filter=copy\n");
+        repository.write("a.txt", "a\n");
+        repository.commitAll("first");
+        touch("a.txt");
+
+        assertTouchedFileStatus();
+    }
+
+    @Test
+    public void statOnlyResizedFileTest() throws Exception {
+        setAutoCrLf(true);
+        repository.write("a.txt", "a\r\n");
+        repository.commitAll("first");
+        repository.write("a.txt", "a\r\nb\r\n");
+
+        for (GitOptions options : new GitOptions[]{NO_CACHE, STAT_ONLY, STAT_ONLY_CACHE}) {
+            assertThat(status(options).getModified()).describedAs(options.toString()).containsOnly("a.txt");
+        }
+    }
+
+    @Test
+    public void statOnlyUnfilteredFileTest() throws Exception {
+        repository.write("a.txt", "a\n");
+        repository.commitAll("first");
+        touch("a.txt");
+
+        // files which don't need to be filtered are hashed as usual
+        assertThat(status(STAT_ONLY).isClean()).isTrue();
+    }
+
+    /**
+     * The content of {@code a.txt} is unchanged, but its modification time differs from the index
+     */
+    private void assertTouchedFileStatus() throws IOException {
+        assertThat(status(NO_CACHE).isClean()).isTrue();
+
+        // reported as modified by its stat information alone
+        assertThat(status(STAT_ONLY).getModified()).containsOnly("a.txt");
+
+        // with a cache, the filter is run and the result is recorded, so the file is hashed as usual
+        assertThat(status(STAT_ONLY_CACHE).isClean()).isTrue();
+        assertThat(status(STAT_ONLY_CACHE).isClean()).isTrue();
+    }
+
+    private Status status(GitOptions options) throws IOException {
+        return new Status(WorkingTreeStatus.diff(repository.getRepository(), repository.getRepository().resolve(Constants.HEAD), options, log));
+    }
+
+    private void touch(String path) {
+        assertThat(repository.file(path).setLastModified(touched)).isTrue();
+    }
+
+    private void setAutoCrLf(boolean value) throws IOException {
+        StoredConfig config = repository.getRepository().getConfig();
+        config.setBoolean("core", null, "autocrlf", value);
+        config.save();
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TagIndexTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private final Log log = new SystemStreamLog();
+
+    @Test
+    public void indexTest() throws Exception {
+        RevCommit first = repository.getGit().commit().setMessage("first").call();
+        repository.getGit().tag().setName("lightweight").setAnnotated(false).call();
+        repository.getGit().tag().setName("annotated").setMessage("annotated").call();
+        RevCommit second = repository.getGit().commit().setMessage("second").call();
+
+        TagIndex index = TagIndex.load(repository.getRepository(), log);
+
+        // annotated tags are peeled to the commit they point to
+        assertThat(index.tagAt(first)).isEqualTo("lightweight");
+        assertThat(index.tagAt(second)).isNull();
+        assertThat(index.tagsByCommit()).hasSize(1);
+    }
+
+    @Test
+    public void cachedIndexTest() throws Exception {
+        RevCommit first = repository.getGit().commit().setMessage("first").call();
+        repository.getGit().tag().setName("v1").call();
+
+        TagIndex index = TagIndex.load(repository.getRepository(), log);
+        assertThat(TagIndex.load(repository.getRepository(), log)).isSameAs(index);
+
+        RevCommit second = repository.getGit().commit().setMessage("second").call();
+        repository.getGit().tag().setName("v2").call();
+
+        TagIndex updated = TagIndex.load(repository.getRepository(), log);
+        assertThat(updated).isNotSameAs(index);
+        assertThat(updated.tagAt(first)).isEqualTo("v1");
+        assertThat(updated.tagAt(second)).isEqualTo("v2");
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WindowCacheSettingsTest {
+
+    private static final long KB = 1024;
+
+    private static final long MB = 1024 * KB;
+
+    private static final long GB = 1024 * MB;
+
+    private static final long HEAP = 4 * GB;
+
+    @Test
+    public void smallRepositoryTest() {
+        WindowCacheSettings resolved = WindowCacheSettings.AUTOMATIC.resolve(MB, 1, HEAP, null);
+
+        // JGit's defaults
+        assertThat(resolved).isEqualTo(new WindowCacheSettings(false, (int) (8 * KB), 10 * MB, 128, (int) (10 * MB)));
+    }
+
+    @Test
+    public void largeRepositoryTest() {
+        WindowCacheSettings resolved = WindowCacheSettings.AUTOMATIC.resolve(3 * GB, 200, HEAP, null);
+
+        assertThat(resolved).isEqualTo(new WindowCacheSettings(false, (int) (64 * KB), 256 * MB, 232, (int) (64 * MB)));
+    }
+
+    @Test
+    public void smallHeapTest() {
+        WindowCacheSettings resolved = WindowCacheSettings.AUTOMATIC.resolve(3 * GB, 200, 512 * MB, null);
+
+        assertThat(resolved.getPackedGitLimit()).isEqualTo(128 * MB);
+    }
+
+    @Test
+    public void configuredLimitTest() {
+        WindowCacheSettings resolved = WindowCacheSettings.builder().packedGitLimit(GB).build().resolve(3 * GB, 200, HEAP, null);
+
+        // only derived limits are capped
+        assertThat(resolved.getPackedGitLimit()).isEqualTo(GB);
+    }
+
+    @Test
+    public void configuredTest() {
+        WindowCacheSettings configured = WindowCacheSettings.builder()
+            .packedGitMmap(true)
+            .packedGitLimit(32 * KB)
+            .packedGitOpenFiles(16)
+            .build();
+
+        WindowCacheSettings resolved = configured.resolve(3 * GB, 200, HEAP, null);
+
+        // the derived window size is limited by the configured limit
+        assertThat(resolved).isEqualTo(new WindowCacheSettings(true, (int) (32 * KB), 32 * KB, 16, (int) (64 * MB)));
+    }
+
+    @Test
+    public void neverDecreasesTest() {
+        WindowCacheSettings large = WindowCacheSettings.AUTOMATIC.resolve(3 * GB, 200, HEAP, null);
+
+        assertThat(WindowCacheSettings.AUTOMATIC.resolve(MB, 1, HEAP, large)).isEqualTo(large);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.testing.GitRepositoryRule;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkingTreeFingerprintTest {
+
+    @Rule
+    public final GitRepositoryRule repository = new GitRepositoryRule();
+
+    private ObjectId head;
+
+    @Before
+    public void setup() throws Exception {
+        repository.write(".gitignore", "target/\n");
+        repository.write("a.txt", "a");
+
+        head = repository.commitAll("first");
+    }
+
+    @Test
+    public void cleanTest() throws Exception {
+        assertThat(fingerprint()).isEqualTo(head.name());
+    }
+
+    @Test
+    public void modifiedTest() throws Exception {
+        repository.write("a.txt", "b");
+        String first = fingerprint("a.txt");
+
+        assertThat(first).isNotEqualTo(head.name());
+
+        // the same state produces the same fingerprint
+        assertThat(fingerprint("a.txt")).isEqualTo(first);
+
+        repository.write("a.txt", "c");
+        assertThat(fingerprint("a.txt")).isNotEqualTo(first);
+
+        repository.write("a.txt", "b");
+        assertThat(fingerprint("a.txt")).isEqualTo(first);
+
+        FileUtils.forceDelete(repository.file("a.txt"));
+        assertThat(fingerprint("a.txt")).isNotEqualTo(first);
+    }
+
+    @Test
+    public void untrackedDirectoryTest() throws Exception {
+        repository.write("new/b.txt", "b");
+        repository.write("new/nested/c.txt", "c");
+        repository.write("new/target/output.txt", "output");
+
+        String expanded = fingerprint("new/b.txt", "new/nested/c.txt");
+
+        // git status reports the repository.getDirectory(), JGit reports each file which isn't ignored
+        assertThat(fingerprint("new/")).isEqualTo(expanded);
+
+        repository.write("new/target/output.txt", "changed output");
+        assertThat(fingerprint("new/")).isEqualTo(expanded);
+    }
+
+    private String fingerprint(String... changed) throws IOException {
+        return WorkingTreeFingerprint.of(repository.getRepository(), Constants.TYPE_COMMIT, head, changed.length == 0 ? Collections.<String>emptySet() : Arrays.asList(changed));
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.git;
+
+import org.junit.Test;
+
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WorkingTreeWatcherTest {
+
+    @Test
+    public void isPollingTest() {
+        assertThat(WorkingTreeWatcher.isPolling(new PollingWatchService())).isTrue();
+        assertThat(WorkingTreeWatcher.isPolling(new NativeWatchService())).isFalse();
+    }
+
+    /**
+     * Named like the JDK's polling implementation
+     */
+    private static class PollingWatchService extends NativeWatchService {
+    }
+
+    private static class NativeWatchService implements WatchService {
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public WatchKey poll() {
+            return null;
+        }
+
+        @Override
+        public WatchKey poll(long timeout, TimeUnit unit) {
+            return null;
+        }
+
+        @Override
+        public WatchKey take() {
+            return null;
+        }
+    }
+
+}
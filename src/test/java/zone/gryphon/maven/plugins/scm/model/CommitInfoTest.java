@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.model;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommitInfoTest {
+
+    // 2019-10-12T12:03:51Z
+    private static final long TIME = 1570881831000L;
+
+    @Test
+    public void formatCommitTimeTest() {
+        assertThat(commit(0).formatCommitTime()).isEqualTo("2019-10-12T12:03:51+00:00");
+        assertThat(commit(120).formatCommitTime()).isEqualTo("2019-10-12T14:03:51+02:00");
+        assertThat(commit(-570).formatCommitTime()).isEqualTo("2019-10-12T02:33:51-09:30");
+    }
+
+    private static CommitInfo commit(int offset) {
+        return CommitInfo.builder()
+            .commitTime(TIME)
+            .commitTimeZoneOffset(offset)
+            .authorName("author")
+            .authorEmail("author@example.com")
+            .committerName("committer")
+            .committerEmail("committer@example.com")
+            .subject("subject")
+            .build();
+    }
+
+}
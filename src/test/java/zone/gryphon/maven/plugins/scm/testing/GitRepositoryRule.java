@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.testing;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.rules.ExternalResource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Creates an empty {@code git} repository in a transient folder under {@code target/testing} before each test,
+ * and deletes it afterwards
+ */
+@SuppressWarnings("WeakerAccess")
+public class GitRepositoryRule extends ExternalResource {
+
+    private File directory;
+
+    private Git git;
+
+    @Override
+    protected void before() throws Throwable {
+        directory = new File(new File("target", "testing"), UUID.randomUUID().toString()).getAbsoluteFile();
+        git = Git.init().setDirectory(directory).call();
+    }
+
+    @Override
+    protected void after() {
+        if (git != null) {
+            git.close();
+        }
+
+        FileUtils.deleteQuietly(directory);
+    }
+
+    /**
+     * @return The root of the working tree
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    public Git getGit() {
+        return git;
+    }
+
+    public Repository getRepository() {
+        return git.getRepository();
+    }
+
+    /**
+     * @param path Path relative to the root of the working tree
+     * @return The file
+     */
+    public File file(String path) {
+        return new File(directory, path);
+    }
+
+    /**
+     * Write a file in the working tree, creating its parent directories if necessary
+     *
+     * @param path    Path relative to the root of the working tree
+     * @param content The content of the file
+     * @return The file
+     * @throws IOException If the file can't be written
+     */
+    public File write(String path, String content) throws IOException {
+        File file = file(path);
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * Stage every file in the working tree, and commit them
+     *
+     * @param message The commit message
+     * @return The commit
+     * @throws GitAPIException If the commit fails
+     */
+    public RevCommit commitAll(String message) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage(message).call();
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.util;
+
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.model.CommitInfo;
+import zone.gryphon.maven.plugins.scm.model.ScmMetadata;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataExportTest {
+
+    @Test
+    public void minimalTest() {
+        ScmMetadata metadata = ScmMetadata.builder()
+            .branch("master")
+            .revision("0123456789abcdef0123456789abcdef01234567")
+            .uncommittedChangesPresent(false)
+            .remotePathSegments(Collections.<String>emptyList())
+            .build();
+
+        assertThat(roundTrip(metadata, "fingerprint", "fingerprint")).isEqualTo(metadata);
+    }
+
+    @Test
+    public void completeTest() {
+        ScmMetadata metadata = ScmMetadata.builder()
+            .branch("feature/x")
+            .revision("0123456789abcdef0123456789abcdef01234567")
+            .uncommittedChangesPresent(true)
+            .shortRevision("01234567")
+            .remotePathSegments(Arrays.asList("gryphon-zone", "scm-metadata-maven-plugin"))
+            .commitCount(42L)
+            .tagDistance(3L)
+            .tag("v1.0")
+            .describe("v1.0-3-g01234567")
+            .commit(CommitInfo.builder()
+                .commitTime(1570889031000L)
+                .commitTimeZoneOffset(-300)
+                .authorName("Author")
+                .authorEmail("author@example.com")
+                .committerName("Committer")
+                .committerEmail("committer@example.com")
+                .subject("Fix: the = and : characters")
+                .build())
+            .upstreamAhead("1")
+            .upstreamBehind(">10000")
+            .moduleTree("89abcdef")
+            .worktreeFingerprint("fedcba98")
+            .build();
+
+        assertThat(roundTrip(metadata, "fingerprint", "fingerprint")).isEqualTo(metadata);
+    }
+
+    @Test
+    public void fingerprintMismatchTest() {
+        ScmMetadata metadata = ScmMetadata.builder()
+            .branch("master")
+            .revision("0123456789abcdef0123456789abcdef01234567")
+            .uncommittedChangesPresent(false)
+            .remotePathSegments(Collections.<String>emptyList())
+            .build();
+
+        assertThat(roundTrip(metadata, "exported", "current")).isNull();
+    }
+
+    private ScmMetadata roundTrip(ScmMetadata metadata, String exported, String current) {
+        Properties properties = new Properties();
+        properties.putAll(MetadataExport.export(metadata, exported));
+        return MetadataExport.load(properties, current);
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019-2019 Gryphon Zone
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package zone.gryphon.maven.plugins.scm.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+import zone.gryphon.maven.plugins.scm.model.OutputFormat;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataFilesTest {
+
+    private final File directory = new File(new File("target", "testing"), UUID.randomUUID().toString()).getAbsoluteFile();
+
+    @After
+    public void cleanup() {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    @Test
+    public void propertiesTest() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("scm.metadata.branch", "master");
+        properties.put("scm.metadata.commit.subject", " Fix = and : and # and \\ in \"names\"\nsecond line");
+        properties.put("key with spaces", "caf\u00e9 \u2603");
+
+        File file = new File(new File(directory, "classes"), "scm-metadata.properties");
+
+        assertThat(MetadataFiles.write(file, properties, OutputFormat.PROPERTIES)).isTrue();
+
+        Properties actual = new Properties();
+
+        try (InputStream in = new FileInputStream(file)) {
+            actual.load(in);
+        }
+
+        assertThat(actual).isEqualTo(properties);
+    }
+
+    @Test
+    public void jsonTest() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("b", "tab\there");
+        properties.put("a", "\"quoted\" \\ \u0001");
+
+        File file = new File(directory, "scm-metadata.json");
+
+        assertThat(MetadataFiles.write(file, properties, OutputFormat.JSON)).isTrue();
+
+        assertThat(new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8"))).isEqualTo(
+            "{\n" +
+                "  \"a\": \"\\\"quoted\\\" \\\\ \\u0001\",\n" +
+                "  \"b\": \"tab\\there\"\n" +
+                "}\n");
+    }
+
+    @Test
+    public void unchangedTest() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("scm.metadata.revision", "0123456789abcdef");
+
+        File file = new File(directory, "scm-metadata.properties");
+
+        assertThat(MetadataFiles.write(file, properties, OutputFormat.PROPERTIES)).isTrue();
+        assertThat(file.setLastModified(1000000000000L)).isTrue();
+
+        assertThat(MetadataFiles.write(file, new HashMap<>(properties), OutputFormat.PROPERTIES)).isFalse();
+        assertThat(file.lastModified()).isEqualTo(1000000000000L);
+
+        properties.put("scm.metadata.dirty", "true");
+
+        assertThat(MetadataFiles.write(file, properties, OutputFormat.PROPERTIES)).isTrue();
+        assertThat(file.lastModified()).isNotEqualTo(1000000000000L);
+        assertThat(directory.list()).containsExactly("scm-metadata.properties");
+    }
+
+}